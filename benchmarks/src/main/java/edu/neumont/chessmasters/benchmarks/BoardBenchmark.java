@@ -0,0 +1,90 @@
+package edu.neumont.chessmasters.benchmarks;
+
+import edu.neumont.chessmasters.Utils;
+import edu.neumont.chessmasters.models.Board;
+import edu.neumont.chessmasters.models.pieces.PieceColor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the Board operations the game runs on every turn. Each invocation covers every position in a corpus,
+ * and scores are reported per position.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(Positions.PER_CORPUS)
+public class BoardBenchmark {
+
+    @Param({"middlegame", "endgame"})
+    public String corpus;
+
+    private String[]     fens;
+    private Board[]      boards;
+    private PieceColor[] toMove;
+
+    @Setup
+    public void setup() {
+        fens = Positions.get(corpus);
+        boards = new Board[fens.length];
+        toMove = new PieceColor[fens.length];
+        for (int i = 0; i < fens.length; i++) {
+            boards[i] = new Board(fens[i]);
+            toMove[i] = Utils.Turns.getColor(boards[i]);
+        }
+    }
+
+    @Benchmark
+    public void isInCheck(Blackhole bh) {
+        for (int i = 0; i < boards.length; i++)
+            bh.consume(boards[i].isInCheck(toMove[i]));
+    }
+
+    @Benchmark
+    public void isInCheckmate(Blackhole bh) {
+        for (int i = 0; i < boards.length; i++)
+            bh.consume(boards[i].isInCheckmate(toMove[i]));
+    }
+
+    @Benchmark
+    public void checkStalemate(Blackhole bh) {
+        for (int i = 0; i < boards.length; i++)
+            bh.consume(boards[i].checkStalemate(toMove[i]));
+    }
+
+    @Benchmark
+    public void isDeadPosition(Blackhole bh) {
+        for (Board board : boards)
+            bh.consume(board.isDeadPosition());
+    }
+
+    @Benchmark
+    public void parseFEN(Blackhole bh) {
+        for (String fen : fens)
+            bh.consume(new Board(fen));
+    }
+
+    @Benchmark
+    public void toFEN(Blackhole bh) {
+        for (Board board : boards)
+            bh.consume(board.toFEN());
+    }
+
+    @Benchmark
+    public void render(Blackhole bh) {
+        for (Board board : boards)
+            bh.consume(board.toString(PieceColor.WHITE, true));
+    }
+
+    @Benchmark
+    public void copy(Blackhole bh) {
+        for (Board board : boards)
+            bh.consume(new Board(board));
+    }
+
+}
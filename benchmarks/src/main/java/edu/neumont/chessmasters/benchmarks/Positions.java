@@ -0,0 +1,56 @@
+package edu.neumont.chessmasters.benchmarks;
+
+/**
+ * The positions every benchmark runs over. Each corpus has the same number of positions, so scores can be
+ * compared between them.
+ */
+public class Positions {
+
+    public static final int PER_CORPUS = 8;
+
+    public static final String[] MIDDLEGAME = {
+            // Kiwipete
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            // Ruy Lopez, closed
+            "r1bq1rk1/2p1bppp/p1np1n2/1p2p3/4P3/1BP2N1P/PP1P1PP1/RNBQR1K1 b - - 0 9",
+            // Queen's Gambit Declined
+            "r1bq1rk1/pp1nbppp/2p1pn2/3p2B1/2PP4/2NBPN2/PP3PPP/R2QK2R w KQ - 2 8",
+            // Sicilian Najdorf, English Attack
+            "rn2kb1r/1bq2ppp/p2ppn2/1p6/3NP3/2N1BP2/PPPQ2PP/R3KB1R w KQkq - 0 10",
+            // Black to move out of check
+            "r1bqk2r/pppp1Bpp/2n2n2/2b1p3/4P3/5N2/PPPP1PPP/RNBQK2R b KQkq - 0 4",
+    };
+
+    public static final String[] ENDGAME = {
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            // Lucena
+            "1K1k4/1P6/8/8/8/8/r7/2R5 w - - 0 1",
+            // Philidor
+            "4k3/8/r7/4PK2/8/8/8/7R b - - 0 1",
+            // King and pawn
+            "8/8/8/4k3/8/8/4PK2/8 w - - 0 1",
+            // Queen against king, stalemated
+            "7k/5Q2/6K1/8/8/8/8/8 b - - 0 1",
+            // Bishops on the same color, a dead position
+            "8/8/4b3/4k3/8/2KB4/8/8 w - - 0 1",
+            // Back rank mate
+            "6k1/5ppp/8/8/8/8/5PPP/3r2K1 w - - 0 1",
+            // Bishop and knight against king
+            "8/8/8/8/8/2k5/8/KBN5 w - - 0 1",
+    };
+
+    public static String[] get(String corpus) {
+        switch (corpus) {
+            case "middlegame":
+                return MIDDLEGAME;
+            case "endgame":
+                return ENDGAME;
+            default:
+                throw new IllegalArgumentException("Unknown corpus: " + corpus);
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+package edu.neumont.chessmasters.benchmarks;
+
+import edu.neumont.chessmasters.engine.Search;
+import edu.neumont.chessmasters.engine.SearchResult;
+import edu.neumont.chessmasters.engine.TranspositionTable;
+import edu.neumont.chessmasters.models.Board;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Searches each position in a corpus to a fixed depth. Besides the time taken, the number of nodes searched is
+ * reported, which is what better move ordering and pruning should bring down.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({"middlegame", "endgame"})
+    public String corpus;
+
+    @Param({"5"})
+    public int depth;
+
+    private Board[]            boards;
+    private TranspositionTable table;
+    private Search             search;
+
+    // Reported next to the timings, summed over the iteration
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long nodes;
+    }
+
+    @Setup
+    public void setup() {
+        String[] fens = Positions.get(corpus);
+        boards = new Board[fens.length];
+        for (int i = 0; i < fens.length; i++)
+            boards[i] = new Board(fens[i]);
+        table = new TranspositionTable(16);
+        search = new Search(table);
+    }
+
+    @Benchmark
+    public int fixedDepth(Counters counters) {
+        int moves = 0;
+        for (Board board : boards) {
+            // Start each search from nothing, so every invocation does the same work
+            table.clear();
+            SearchResult result = search.search(board, 0, 0, depth, null);
+            counters.nodes += result.nodes;
+            moves += result.move;
+        }
+        return moves;
+    }
+
+}
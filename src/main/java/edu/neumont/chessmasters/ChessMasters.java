@@ -1,49 +1,33 @@
 package edu.neumont.chessmasters;
 
 import edu.neumont.chessmasters.controllers.PlayerMove;
-import edu.neumont.chessmasters.events.EventListener;
-import edu.neumont.chessmasters.events.EventRegistry;
+import edu.neumont.chessmasters.engine.BitbaseGenerator;
+import edu.neumont.chessmasters.engine.Bitbases;
+import edu.neumont.chessmasters.engine.BookBuilder;
 import edu.neumont.chessmasters.models.Board;
+import edu.neumont.chessmasters.models.GameSession;
 import edu.neumont.chessmasters.models.GameSettings;
+import edu.neumont.chessmasters.models.Move;
+import edu.neumont.chessmasters.models.Scoreboard;
 import me.travja.utils.utils.IOUtils;
 import org.fusesource.jansi.AnsiConsole;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.security.CodeSource;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 public class ChessMasters {
 
-    private static double wScore = 0;
-    private static double bScore = 0;
-
-    public static void increaseWScore(double increase) {
-        wScore += increase;
-    }
-
-    public static double getWScore() {
-        return wScore;
-    }
-
-    public static double getBScore() {
-        return bScore;
-    }
-
-    public static void increaseBScore(double increase) {
-        bScore += increase;
-    }
-
-    public static String getScoreboard() {
-        return "Overall Score: White - " + wScore + " Black - " + bScore;
-    }
-
-
-    public static PlayerMove controller;
-
     public static void executeWrappedJar(String[] args) {
         //This just allows the jar to be double-clicked in windows.
         try {
@@ -67,6 +51,16 @@ public class ChessMasters {
                     "\t-t  --trace   <tristate>\tConfigure tracing the last move made (requires color)\n" +
                     "\t-f  --flip    <tristate>\tConfigure flipping the board to face the player\n" +
                     "\t-d  --debug             \tEnable debug mode\n" +
+                    "\t-p  --perft <depth> [fen]\tCount the positions <depth> half-turns deep, from the start or <fen>, and exit\n" +
+                    "\t    --computer <side>  \tLet the computer play { white | black | both | none }\n" +
+                    "\t    --think <ms>       \tHow long the computer thinks about each move (default 1000)\n" +
+                    "\t    --nodes <count>    \tHow many positions the computer may search per move (default no limit)\n" +
+                    "\t    --hash <mb>        \tMemory for the computer's transposition table (default 64)\n" +
+                    "\t    --threads <count>  \tHow many threads the computer searches with (default 1)\n" +
+                    "\t    --book <file>      \tPlay the computer's openings from a book\n" +
+                    "\t    --build-book <pgn> <file> [plies]\tBuild a book from the first [plies] half-turns (default 20) of some games, and exit\n" +
+                    "\t    --bitbases <dir>   \tLook up small endgames in the bitbases in <dir>\n" +
+                    "\t    --build-bitbases <dir>\tGenerate the endgame bitbases into <dir>, and exit\n" +
                     "\n" +
                     "\t<tristate>\tOne of { yes | no | on | off | 1 | 0 | true | false | enable | disable | auto }\n";
 
@@ -153,6 +147,61 @@ public class ChessMasters {
                         if (temp != null) options.flip = temp;
                         break;
 
+                    case "-p":
+                    case "--perft":
+                        parsePerft(argv, option, options);
+                        break;
+
+                    case "--computer":
+                        parseComputer(argv, option, options);
+                        break;
+
+                    case "--think": {
+                        Long millis = parseNumber(argv, option);
+                        if (millis != null) options.thinkMillis = millis;
+                        break;
+                    }
+
+                    case "--nodes": {
+                        Long nodes = parseNumber(argv, option);
+                        if (nodes != null) options.thinkNodes = nodes;
+                        break;
+                    }
+
+                    case "--hash": {
+                        Long megabytes = parseNumber(argv, option);
+                        if (megabytes != null) options.hashMegabytes = megabytes.intValue();
+                        break;
+                    }
+
+                    case "--threads": {
+                        Long threads = parseNumber(argv, option);
+                        if (threads != null) options.threads = threads.intValue();
+                        break;
+                    }
+
+                    case "--book":
+                        if (argv.size() > 0)
+                            options.bookPath = argv.remove(0);
+                        else
+                            System.err.println("[ warn ] Option " + option + " expects a file; received nothing. Ignoring");
+                        break;
+
+                    case "--build-book":
+                        parseBuildBook(argv, option, options);
+                        break;
+
+                    case "--bitbases":
+                    case "--build-bitbases":
+                        if (argv.size() > 0) {
+                            options.bitbasePath = argv.remove(0);
+                            options.buildBitbases = option.equals("--build-bitbases");
+                            if (options.buildBitbases) options.needsWrapping = false;
+                        } else {
+                            System.err.println("[ warn ] Option " + option + " expects a directory; received nothing. Ignoring");
+                        }
+                        break;
+
                     default:
                         // ignore unknown options
                         // actually, right now, let's complain about them
@@ -164,14 +213,83 @@ public class ChessMasters {
         return options;
     }
 
+    private static Long parseNumber(List<String> argv, String option) {
+        if (argv.size() < 1) {
+            System.err.println("[ warn ] Option " + option + " expects a positive number; received nothing. Ignoring");
+            return null;
+        }
+        String input = argv.remove(0);
+        try {
+            long number = Long.parseLong(input);
+            if (number > 0) return number;
+        } catch (NumberFormatException ignored) {
+        }
+        System.err.println("[ warn ] Option " + option + " expects a positive number; received " + input + ". Ignoring");
+        return null;
+    }
+
+    private static void parsePerft(List<String> argv, String option, GameSettings options) {
+        Long depth = parseNumber(argv, option);
+        if (depth == null) return;
+        options.perftDepth = depth.intValue();
+        // FENs never start with a dash, so anything else is the position rather than the next option
+        if (argv.size() > 0 && !argv.get(0).startsWith("-"))
+            options.perftFen = argv.remove(0);
+        options.needsWrapping = false;
+    }
+
+    private static void parseBuildBook(List<String> argv, String option, GameSettings options) {
+        if (argv.size() < 2) {
+            System.err.println("[ warn ] Option " + option + " expects a PGN file and a book file. Ignoring");
+            argv.clear();
+            return;
+        }
+        options.bookPgn = argv.remove(0);
+        options.bookPath = argv.remove(0);
+        if (argv.size() > 0 && !argv.get(0).startsWith("-")) {
+            Long plies = parseNumber(argv, option);
+            if (plies != null) options.bookPlies = plies.intValue();
+        }
+        options.needsWrapping = false;
+    }
+
+    private static void parseComputer(List<String> argv, String option, GameSettings options) {
+        String side = argv.size() > 0 ? argv.remove(0).toLowerCase() : "";
+        switch (side) {
+            case "white":
+                options.computerWhite = true;
+                options.computerBlack = false;
+                break;
+            case "black":
+                options.computerWhite = false;
+                options.computerBlack = true;
+                break;
+            case "both":
+                options.computerWhite = true;
+                options.computerBlack = true;
+                break;
+            case "none":
+                options.computerWhite = false;
+                options.computerBlack = false;
+                break;
+            default:
+                System.err.println("[ warn ] Option " + option + " expects one of white|black|both|none; received " + side + ". Ignoring");
+        }
+    }
+
     public static void main(String[] args) {
         checkColorSupport();
         GameSettings options = parseArgs(args);
 
-        if (options.needsWrapping) {
+        if (options.perftDepth > 0) {
+            runPerft(options);
+        } else if (options.bookPgn != null) {
+            buildBook(options);
+        } else if (options.buildBitbases) {
+            buildBitbases(options);
+        } else if (options.needsWrapping) {
             executeWrappedJar(args);
         } else {
-            registerEvents();
             startGame(options);
         }
     }
@@ -196,25 +314,88 @@ public class ChessMasters {
 
         loadSettings(options);
 
+        // Kept across games, so the score carries on if they play again
+        Scoreboard scoreboard = new Scoreboard();
         do {
             //Run setup here.
 //                Board board = new Board("r2qk2r/8/8/8/8/8/8/R2QK2R w KQkq - 0 1");
-            controller = PlayerMove.inst(new Board());
-            controller.run(options);
+            PlayerMove controller = new PlayerMove(new GameSession(new Board(), options, scoreboard));
+            controller.run();
             if (IOUtils.promptForBoolean("Dump move log? (y/n)", "y", "n"))
                 controller.dumpMoveLog();
             playAgain = IOUtils.promptForBoolean("Play again? (y/n)", "y", "n");
         } while (playAgain);
     }
 
+    /**
+     * Prints the leaf count under each legal move, then the total and how fast we got there.
+     */
+    public static void runPerft(GameSettings options) {
+        Board board = options.perftFen == null ? new Board() : new Board(options.perftFen);
+        System.out.println(board.toFEN() + "\n");
+
+        long start = System.nanoTime();
+        Map<Move, Long> divide = board.divide(options.perftDepth);
+        long elapsed = System.nanoTime() - start;
+
+        long nodes = 0;
+        for (Map.Entry<Move, Long> entry : divide.entrySet()) {
+            System.out.println(entry.getKey() + ": " + entry.getValue());
+            nodes += entry.getValue();
+        }
+        long nps = elapsed == 0 ? 0 : nodes * 1_000_000_000L / elapsed;
+        System.out.println("\nMoves: " + divide.size());
+        System.out.println("Nodes: " + nodes);
+        System.out.println("Time:  " + elapsed / 1_000_000 + "ms (" + nps + " nodes/s)");
+    }
+
+    /**
+     * Builds an opening book from a PGN file, and reports what went into it.
+     */
+    public static void buildBook(GameSettings options) {
+        BookBuilder builder = new BookBuilder(options.bookPlies);
+        try (Reader pgn = Files.newBufferedReader(Paths.get(options.bookPgn), StandardCharsets.ISO_8859_1)) {
+            long start = System.nanoTime();
+            builder.addGames(pgn);
+            int entries = builder.write(Paths.get(options.bookPath));
+            long elapsed = System.nanoTime() - start;
+            System.out.println("Games:     " + builder.getGames());
+            System.out.println("Positions: " + builder.getPositions());
+            System.out.println("Entries:   " + entries);
+            System.out.println("Time:      " + elapsed / 1_000_000 + "ms");
+        } catch (IOException e) {
+            System.err.println("[ warn ] Couldn't build the book: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Generates every endgame bitbase into a directory, reporting on each as it's finished.
+     */
+    public static void buildBitbases(GameSettings options) {
+        BitbaseGenerator generator = new BitbaseGenerator();
+        try {
+            Path directory = Files.createDirectories(Paths.get(options.bitbasePath));
+            for (Bitbases.Ending ending : Bitbases.Ending.values()) {
+                long start = System.nanoTime();
+                int[] bits = generator.generate(ending);
+                long elapsed = System.nanoTime() - start;
+                BitbaseGenerator.write(bits, directory.resolve(ending.getFileName()));
+
+                long wins = 0;
+                for (int word : bits)
+                    wins += Integer.bitCount(word);
+                System.out.println(ending + ": " + wins + " won positions, " + generator.getPasses() + " passes, "
+                        + elapsed / 1_000_000 + "ms");
+            }
+        } catch (IOException e) {
+            System.err.println("[ warn ] Couldn't write the bitbases: " + e.getMessage());
+        }
+    }
+
     public static void checkColorSupport() {
         if (System.getProperty("os.name").startsWith("Windows")) {
             AnsiConsole.systemInstall();
             Utils.USE_ANSI = true;
         }
     }
-
-    private static void registerEvents() {
-        EventRegistry.registerEvents(new EventListener());
-    }
 }
@@ -9,6 +9,23 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface EventHandler {
 
+    /**
+     * Handlers with a higher priority are called first. Those with the same priority are called in the order they
+     * were registered.
+     */
     int priority() default 0;
 
+    /**
+     * Whether to skip this handler for events an earlier handler has cancelled, such as a move validator that has
+     * nothing to add once the move has been refused. See {@link edu.neumont.chessmasters.events.Cancellable}.
+     */
+    boolean ignoreCancelled() default false;
+
+    /**
+     * Whether this handler can be left to run in the background when the event is called with
+     * {@link edu.neumont.chessmasters.events.EventRegistry#callEventAsync}. Called the usual way, it runs straight
+     * away like any other.
+     */
+    boolean async() default false;
+
 }
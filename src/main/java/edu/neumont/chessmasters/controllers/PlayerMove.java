@@ -2,9 +2,16 @@ package edu.neumont.chessmasters.controllers;
 
 import edu.neumont.chessmasters.ChessMasters;
 import edu.neumont.chessmasters.Utils;
+import edu.neumont.chessmasters.engine.Bitbases;
+import edu.neumont.chessmasters.engine.OpeningBook;
+import edu.neumont.chessmasters.engine.Search;
+import edu.neumont.chessmasters.engine.SearchResult;
+import edu.neumont.chessmasters.engine.TranspositionTable;
 import edu.neumont.chessmasters.exceptions.IncompleteMoveException;
 import edu.neumont.chessmasters.models.Board;
+import edu.neumont.chessmasters.models.GameSession;
 import edu.neumont.chessmasters.models.GameSettings;
+import edu.neumont.chessmasters.models.GameStatus;
 import edu.neumont.chessmasters.models.Move;
 import edu.neumont.chessmasters.models.pieces.Piece;
 import edu.neumont.chessmasters.models.pieces.PieceColor;
@@ -14,18 +21,24 @@ import me.travja.utils.utils.FileUtils;
 import me.travja.utils.utils.IOUtils;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 public class PlayerMove {
 
 
+    private final  GameSession  session;
     private        Board        board;
-    private static PlayerMove   inst;
-    private        String       status = null;
-    private        boolean      gameOver;
-    private        GameSettings options;
+    private final  GameSettings options;
+    private        Search       search;
+    private        OpeningBook  book;
+    private        Bitbases     bitbases;
+    private        int          lastVerdict = Bitbases.UNKNOWN;
+    private final  Random       random = new Random();
 
 
     public String getColorName() {
@@ -54,68 +67,75 @@ public class PlayerMove {
     }
 
 
-    public PlayerMove() {
-        this(new Board());
-    }
-
-    private PlayerMove(Board board) {
-        //inst = this;
-        this.board = board;
-        this.setStatus(null);
-        this.gameOver = false;
-    }
-
-    public static PlayerMove inst() {
-        if (inst == null) inst = new PlayerMove();
-        return inst;
-    }
-
-    public static PlayerMove inst(Board board) {
-        inst = new PlayerMove(board);
-        return inst;
+    /**
+     * Plays a game at the console.
+     *
+     * @param session The game, which has the board and settings to play with
+     */
+    public PlayerMove(GameSession session) {
+        this.session = session;
+        this.board = session.getBoard();
+        this.options = session.getSettings();
     }
 
     public Board getBoard() {
         return board;
     }
 
-    public void run(GameSettings options) {
-        this.options = options;
-        gameOver = false;
+    public GameSession getSession() {
+        return session;
+    }
+
+    public void run() {
+        if (options.bitbasePath != null) {
+            try {
+                bitbases = new Bitbases(Paths.get(options.bitbasePath));
+            } catch (IOException e) {
+                System.err.println("[ warn ] Couldn't open the bitbases: " + e.getMessage() + ". Playing without them");
+            }
+        }
         boolean keepPlaying;
         helpMenu();
-        do {
-            keepPlaying = RequestMove();
-            if (this.gameOver) {
-                Utils.clearConsole();
-                System.out.println("\n" + board.toString(PieceColor.WHITE, options.traceMoves) + "\n");
-                this.flushStatus();
-                return;
+        try {
+            do {
+                keepPlaying = RequestMove();
+                if (session.isGameOver()) {
+                    Utils.clearConsole();
+                    System.out.println("\n" + board.toString(PieceColor.WHITE, options.traceMoves) + "\n");
+                    this.flushStatus();
+                    return;
+                }
+            } while (keepPlaying);
+        } finally {
+            // Each game gets its own search, so its helper threads mustn't outlive the game
+            if (search != null) {
+                search.close();
+                search = null;
             }
-        } while (keepPlaying);
+        }
     }
 
     public void setGameOver() {
-        this.gameOver = true;
+        session.setGameOver();
     }
 
     public void setStatus(String status) {
-        this.status = status;
+        session.setStatus(status);
     }
 
     public void setStatusIfEmpty(String status) {
-        if (this.getStatus() == null) this.setStatus(status);
+        session.setStatusIfEmpty(status);
     }
 
     public String getStatus() {
-        return status;
+        return session.getStatus();
     }
 
     public void flushStatus() {
-        if (this.getStatus() != null) {
-            System.out.println(this.getStatus());
+        String status = session.takeStatus();
+        if (status != null) {
+            System.out.println(status);
         }
-        this.setStatus(null);
     }
 
     /**
@@ -142,29 +162,48 @@ public class PlayerMove {
         // 2. Print board
         Utils.clearConsole();
         System.out.println("\n\n" + board.toString(options.flip ? getColor() : PieceColor.WHITE, options.traceMoves));
+        // 2.0.1 The last move's status is worked out in the background while the board is drawn. Wait for it before
+        // saying anything, as it may have ended the game.
+        session.awaitEvents();
+        if (session.isGameOver())
+            return false;
         this.flushStatus();
         // 2.1 End-game logic, assuming we have not already reached end-game
-        if (!gameOver) {
+        if (!session.isGameOver()) {
+            GameStatus status = session.getPositionCache().getStatus(board, getColor());
             // 2.1.1 If we're in a stalemate, say so and end the game
-            if (board.checkStalemate(getColor())) {
-                ChessMasters.increaseWScore(.5);
-                ChessMasters.increaseBScore(.5);
-                this.setStatus(getColorName() + " has been forced into a stalemate. " + ChessMasters.getScoreboard());
+            if (status == GameStatus.STALEMATE) {
+                session.getScoreboard().draw();
+                this.setStatus(getColorName() + " has been forced into a stalemate. " + session.getScoreboard());
                 this.setGameOver();
                 return false;
                 // 2.1.2 If the board is in a dead position, say so and end the game.
-            } else if (board.isDeadPosition()) {
-                ChessMasters.increaseWScore(.5);
-                ChessMasters.increaseBScore(.5);
-                setStatus("DRAW! Checkmate is no longer possible. " + ChessMasters.getScoreboard());
+            } else if (status == GameStatus.DEAD_POSITION) {
+                session.getScoreboard().draw();
+                setStatus("DRAW! Checkmate is no longer possible. " + session.getScoreboard());
                 this.setGameOver();
                 return false;
-            } else if (board.getMovesSinceCap() >= 50) {
-                ChessMasters.increaseWScore(.5);
-                ChessMasters.increaseBScore(.5);
-                setStatus("It has been 50 moves since the last capture or pawn advancement. The game ends in a draw. " + ChessMasters.getScoreboard());
+            } else if (status == GameStatus.FIFTY_MOVE_DRAW) {
+                session.getScoreboard().draw();
+                setStatus("It has been 50 moves since the last capture or pawn advancement. The game ends in a draw. " + session.getScoreboard());
                 this.setGameOver();
                 return false;
+            } else if (board.isFivefoldRepetition()) {
+                session.getScoreboard().draw();
+                setStatus("The same position has occurred five times. The game ends in a draw. " + session.getScoreboard());
+                this.setGameOver();
+                return false;
+            } else if (board.isThreefoldRepetition()) {
+                this.setStatus("This position has occurred three times. Either player may type 'draw' to end the game in a draw.");
+                this.flushStatus();
+            }
+            // 2.1.3 If the bitbases know how this ending goes, say so whenever that changes
+            reportVerdict();
+
+            // 2.2 If the computer is playing this color, let it move instead
+            if (options.isComputer(getColor()) && playComputerMove()) {
+                board.incrCounter();
+                return true;
             }
         }
 
@@ -181,15 +220,21 @@ public class PlayerMove {
                     System.exit(0); // exits application
                 case "forfeit":
                     // 3.2.1 Execute command
-                    if (isWhite()) {
-                        ChessMasters.increaseBScore(1);
-                    } else if (isBlack()) {
-                        ChessMasters.increaseWScore(1);
-                    }
-                    this.setStatus(getColorName() + " has elected to forfeit. " + ChessMasters.getScoreboard());
+                    session.getScoreboard().increase(getColor().getOpposite(), 1);
+                    this.setStatus(getColorName() + " has elected to forfeit. " + session.getScoreboard());
                     this.flushStatus();
                     this.setGameOver();
                     return false; // exits method, indicating game is over
+                case "draw":
+                    if (!board.isThreefoldRepetition()) {
+                        System.out.println("A draw can only be claimed once the same position has occurred three times.");
+                        continue;
+                    }
+                    session.getScoreboard().draw();
+                    this.setStatus(getColorName() + " has claimed a draw by threefold repetition. " + session.getScoreboard());
+                    this.flushStatus();
+                    this.setGameOver();
+                    return false;
                 case "board":
                     Utils.clearConsole();
                     System.out.println("\n\n" + board.toString(options.flip ? getColor() : PieceColor.WHITE, options.traceMoves));
@@ -283,12 +328,70 @@ public class PlayerMove {
         return board.movePiece(move);
     }
 
+    /**
+     * Searches for the best move and plays it.
+     *
+     * @return Whether a move was played. If not, the current player is asked for one instead.
+     */
+    private boolean playComputerMove() {
+        if (search == null) {
+            search = new Search(new TranspositionTable(options.hashMegabytes), options.threads);
+            search.setBitbases(bitbases);
+        }
+        if (book == null && options.bookPath != null) {
+            try {
+                book = new OpeningBook(Paths.get(options.bookPath));
+            } catch (IOException e) {
+                System.err.println("[ warn ] Couldn't open the opening book: " + e.getMessage() + ". Playing without it");
+                options.bookPath = null;
+            }
+        }
+
+        int bookMove = book == null ? 0 : book.pick(board, random);
+        if (bookMove != 0) {
+            Move move = Move.decode(bookMove);
+            this.setStatus(getColorName() + " played " + move + " (book)");
+            if (AttemptMove(move, board, getColor()))
+                return true;
+            this.setStatus(null);
+        }
+
+        System.out.println("\n" + getColorName() + " is thinking...");
+        SearchResult result = search.search(board, options.thinkMillis, options.thinkNodes, Search.MAX_PLY,
+                options.debug ? r -> System.err.println("[ debug ] " + r) : null);
+        if (result.move == 0)
+            return false;
+
+        Move move = Move.decode(result.move);
+        this.setStatus(getColorName() + " played " + move + " (" + Search.formatScore(result.score) + ")");
+        if (AttemptMove(move, board, getColor()))
+            return true;
+
+        System.err.println("[ warn ] The board refused the computer's move " + move + ": " + getStatus());
+        this.setStatus(null);
+        return false;
+    }
+
+    private void reportVerdict() {
+        int verdict = bitbases == null ? Bitbases.UNKNOWN : bitbases.probe(board);
+        if (verdict != lastVerdict && verdict != Bitbases.UNKNOWN) {
+            if (verdict == Bitbases.DRAW)
+                this.setStatus("With best play, this ending is a draw.");
+            else
+                this.setStatus("With best play, " + (verdict == Bitbases.WIN ? getColorName() : Utils.Turns.getColorName(board.getCounter() + 1))
+                        + " wins this ending.");
+            this.flushStatus();
+        }
+        lastVerdict = verdict;
+    }
+
     private void helpMenu() {
         StringBuilder helper = new StringBuilder();
 
         helper
                 .append("\n\nTo move, simply input your target piece (a2) and your destination (a4). Ex: 'a2 a4' moves the piece at a2 to a4")
                 .append("\n\n`forfeit' to give up and optionally play another game")
+                .append("\n\n`draw' to claim a draw once the same position has occurred three times")
                 .append("\n\n`quit' or `exit' to close the application")
                 .append("\n\n`dump' to show the move history")
                 .append("\n\n`save' and `load' to save this game or restore the last saved game")
@@ -368,6 +471,7 @@ public class PlayerMove {
                 System.out.println("Loading game...");
                 String boardFen = FileUtils.readFileFully("saves" + File.separator + slot + ".chess");
                 Board savedBoard = new Board(boardFen);
+                session.setBoard(savedBoard);
                 board = savedBoard;
                 System.out.println(board);
                 loaded = true;
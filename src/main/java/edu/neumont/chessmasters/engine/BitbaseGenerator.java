@@ -0,0 +1,282 @@
+package edu.neumont.chessmasters.engine;
+
+import edu.neumont.chessmasters.engine.Bitbases.Ending;
+import edu.neumont.chessmasters.models.Bitboards;
+import edu.neumont.chessmasters.models.pieces.PieceType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Works out the {@link Bitbases} by retrograde analysis, done as repeated passes over every position until nothing
+ * changes:
+ * <ul>
+ *     <li>With the strong side to move, a position is won if any move leads to a won position.</li>
+ *     <li>With the lone king to move, it's won if the king is mated, or if every move leads to a won position and
+ *     none of them takes a piece.</li>
+ * </ul>
+ * Each pass can only add wins, so once a pass adds none, everything left is a draw (or isn't a legal position).
+ * This is simpler than unmoving pieces from each newly won position, at the cost of looking at every undecided
+ * position again on each pass. Passes are split across cores with fork-join, each task owning a range of the
+ * table's words. Tasks read each other's ranges as they're being written, but bits only ever go from 0 to 1, so
+ * reading an old value just means that position waits for the next pass.
+ * <br/>
+ * Pawn promotions look up the queen and rook endings, so those are worked out first when they're needed.
+ */
+public class BitbaseGenerator {
+
+    // Words of the table each fork-join task works through
+    private static final int LEAF_WORDS = 1 << 9;
+
+    private final ForkJoinPool pool;
+    // Finished tables, indexed by Ending ordinal, packed 32 positions to an int
+    private final int[][]      tables = new int[Ending.values().length][];
+    private       int          passes;
+
+    public BitbaseGenerator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public BitbaseGenerator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Works out an ending, and any it depends on, unless they've been done already.
+     *
+     * @param ending The ending
+     * @return The won positions, one bit per index, 32 to an int with the lowest index in the lowest bit
+     */
+    public int[] generate(Ending ending) {
+        int[] bits = tables[ending.ordinal()];
+        if (bits != null)
+            return bits;
+        if (ending == Ending.KPK) {
+            generate(Ending.KQK);
+            generate(Ending.KRK);
+        }
+
+        bits = new int[(int) (ending.size() >>> 5)];
+        passes = 0;
+        long added;
+        do {
+            added = pool.invoke(new Pass(ending, bits, 0, bits.length));
+            passes++;
+        } while (added > 0);
+        tables[ending.ordinal()] = bits;
+        return bits;
+    }
+
+    /**
+     * @return How many passes the last ending worked out took, including the final one that found nothing new
+     */
+    public int getPasses() {
+        return passes;
+    }
+
+    /**
+     * Writes a table out in the format {@link Bitbases} maps.
+     *
+     * @param bits The table, from {@link #generate}
+     * @param path Where to write it
+     * @throws IOException If writing fails
+     */
+    public static void write(int[] bits, Path path) throws IOException {
+        // Little-endian puts each int's lowest bits in its first byte, which keeps the bits in index order
+        ByteBuffer buffer = ByteBuffer.allocate(bits.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asIntBuffer().put(bits);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+    }
+
+    private static boolean isSet(int[] bits, int index) {
+        return (bits[index >>> 5] >>> (index & 31) & 1) != 0;
+    }
+
+    /**
+     * One pass over a range of the table's words, splitting itself up until the ranges are small enough.
+     * Returns how many new wins it found.
+     */
+    private class Pass extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Ending      ending;
+        private final PieceType[] pieces;
+        private final int[]       bits;
+        private final int         start, end;
+        // Squares of the strong king, the lone king, then the pieces, for the position being looked at
+        private final int[]       squares;
+
+        Pass(Ending ending, int[] bits, int start, int end) {
+            this.ending = ending;
+            this.pieces = ending.getPieces();
+            this.bits = bits;
+            this.start = start;
+            this.end = end;
+            this.squares = new int[2 + pieces.length];
+        }
+
+        @Override
+        protected Long compute() {
+            if (end - start > LEAF_WORDS) {
+                int middle = (start + end) >>> 1;
+                Pass left = new Pass(ending, bits, start, middle);
+                left.fork();
+                long right = new Pass(ending, bits, middle, end).compute();
+                return right + left.join();
+            }
+
+            long added = 0;
+            for (int word = start; word < end; word++) {
+                int before = bits[word], after = before;
+                for (int bit = 0; bit < 32; bit++)
+                    if ((after & (1 << bit)) == 0 && isWon((word << 5) | bit))
+                        after |= 1 << bit;
+                if (after != before) {
+                    bits[word] = after;
+                    added += Integer.bitCount(after & ~before);
+                }
+            }
+            return added;
+        }
+
+        private boolean isWon(int index) {
+            int rest = index;
+            for (int i = squares.length - 1; i >= 0; i--) {
+                squares[i] = rest & 63;
+                rest >>>= 6;
+            }
+            boolean strongToMove = rest == 0;
+
+            long occupied = 0;
+            for (int square : squares)
+                occupied |= Bitboards.bit(square);
+            if (Long.bitCount(occupied) != squares.length)
+                return false;
+            int strongKing = squares[0], weakKing = squares[1];
+            if ((Bitboards.kingAttacks(strongKing) & Bitboards.bit(weakKing)) != 0)
+                return false;
+            for (int i = 0; i < pieces.length; i++) {
+                int rank = Bitboards.getY(squares[2 + i]);
+                if (pieces[i] == PieceType.PAWN && (rank == 0 || rank == 7))
+                    return false;
+            }
+
+            if (strongToMove) {
+                // The lone king can't be in check with the other side to move
+                if ((strongAttacks(occupied) & Bitboards.bit(weakKing)) != 0)
+                    return false;
+                return strongCanWin(occupied);
+            }
+            return weakMustLose(occupied);
+        }
+
+        private boolean strongCanWin(long occupied) {
+            int weakKing = squares[1];
+            long own = occupied & ~Bitboards.bit(weakKing);
+
+            long targets = Bitboards.kingAttacks(squares[0]) & ~own & ~Bitboards.kingAttacks(weakKing);
+            for (; targets != 0; targets &= targets - 1)
+                if (isWonAfter(0, Bitboards.first(targets)))
+                    return true;
+
+            for (int i = 0; i < pieces.length; i++) {
+                int from = squares[2 + i];
+                if (pieces[i] == PieceType.PAWN) {
+                    int to = from + 8;
+                    if ((occupied & Bitboards.bit(to)) != 0)
+                        continue;
+                    if (Bitboards.getY(to) == 7) {
+                        // A bishop or knight alone can't win, so only these promotions are worth looking at
+                        if (isPromotionWon(Ending.KQK, to) || isPromotionWon(Ending.KRK, to))
+                            return true;
+                        continue;
+                    }
+                    if (isWonAfter(2 + i, to))
+                        return true;
+                    if (Bitboards.getY(from) == 1 && (occupied & Bitboards.bit(to + 8)) == 0 && isWonAfter(2 + i, to + 8))
+                        return true;
+                } else {
+                    targets = attacks(pieces[i], from, occupied) & ~occupied;
+                    for (; targets != 0; targets &= targets - 1)
+                        if (isWonAfter(2 + i, Bitboards.first(targets)))
+                            return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean weakMustLose(long occupied) {
+            int weakKing = squares[1];
+            // Sliders see through the king's own square, as it won't be there after it moves
+            long attacked = strongAttacks(occupied & ~Bitboards.bit(weakKing));
+            long targets = Bitboards.kingAttacks(weakKing) & ~attacked;
+            if (targets == 0)
+                return (attacked & Bitboards.bit(weakKing)) != 0;
+
+            for (; targets != 0; targets &= targets - 1) {
+                int to = Bitboards.first(targets);
+                // Taking an undefended piece leaves too little to mate with
+                if ((occupied & Bitboards.bit(to)) != 0)
+                    return false;
+                if (!isWonAfter(1, to))
+                    return false;
+            }
+            return true;
+        }
+
+        // Whether the position is won once the piece at squares[piece] moves to the given square
+        private boolean isWonAfter(int piece, int to) {
+            int from = squares[piece];
+            squares[piece] = to;
+            int child = 0;
+            for (int square : squares)
+                child = (child << 6) | square;
+            squares[piece] = from;
+            // The strong side moving hands the move to the lone king, and the other way round
+            boolean strongMoved = piece != 1;
+            if (strongMoved)
+                child |= 1 << (6 * squares.length);
+            return isSet(bits, child);
+        }
+
+        private boolean isPromotionWon(Ending promoted, int to) {
+            int child = (1 << 18) | (squares[0] << 12) | (squares[1] << 6) | to;
+            return isSet(tables[promoted.ordinal()], child);
+        }
+
+        private long strongAttacks(long occupied) {
+            long attacked = Bitboards.kingAttacks(squares[0]);
+            for (int i = 0; i < pieces.length; i++)
+                attacked |= attacks(pieces[i], squares[2 + i], occupied);
+            return attacked;
+        }
+
+    }
+
+    private static long attacks(PieceType type, int square, long occupied) {
+        switch (type) {
+            case PAWN:
+                return Bitboards.pawnAttacks(0, square);
+            case KNIGHT:
+                return Bitboards.knightAttacks(square);
+            case BISHOP:
+                return Bitboards.bishopAttacks(square, occupied);
+            case ROOK:
+                return Bitboards.rookAttacks(square, occupied);
+            default:
+                return Bitboards.queenAttacks(square, occupied);
+        }
+    }
+
+}
@@ -0,0 +1,167 @@
+package edu.neumont.chessmasters.engine;
+
+import edu.neumont.chessmasters.Utils;
+import edu.neumont.chessmasters.models.Bitboards;
+import edu.neumont.chessmasters.models.Board;
+import edu.neumont.chessmasters.models.pieces.PieceColor;
+import edu.neumont.chessmasters.models.pieces.PieceType;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Endgame bitbases: perfect knowledge of whether a few small endings are won, one bit per position. In each of
+ * them the lone king can never win, so one bit is enough to say whether the side with the pieces can force mate.
+ * <br/>
+ * A position's index packs the side to move and each piece's square into a number, as described on
+ * {@link Ending}, and the files are just those bits in index order, eight to a byte with the lowest index in the
+ * lowest bit. They're memory-mapped, so a probe costs an index and a single byte read. Build them with
+ * {@link BitbaseGenerator}.
+ * <br/>
+ * Castling and the 50-move rule are ignored, so a "win" assumes there's time left to deliver it.
+ */
+public class Bitbases {
+
+    public static final int UNKNOWN = -2; // No bitbase covers the position
+    public static final int LOSS    = -1; // The side to move loses with best play
+    public static final int DRAW    = 0;
+    public static final int WIN     = 1;  // The side to move wins with best play
+
+    /**
+     * The endings covered, each a king and some pieces against a lone king. Positions are stored as if the side
+     * with the pieces were white, so a position where they're black is flipped top to bottom first.
+     * <br/>
+     * From the top bit down, an index is whether the lone king is to move, then the squares of the strong king, the
+     * lone king and each of the pieces in the order given here, six bits each.
+     */
+    public enum Ending {
+        KQK(PieceType.QUEEN),
+        KRK(PieceType.ROOK),
+        KPK(PieceType.PAWN),
+        KBNK(PieceType.BISHOP, PieceType.KNIGHT);
+
+        private final PieceType[] pieces;
+
+        Ending(PieceType... pieces) {
+            this.pieces = pieces;
+        }
+
+        public PieceType[] getPieces() {
+            return pieces.clone();
+        }
+
+        public int getPieceCount() {
+            return pieces.length;
+        }
+
+        /**
+         * @return How many indexes there are, legal or not
+         */
+        public long size() {
+            return 1L << (1 + 6 * (2 + pieces.length));
+        }
+
+        public String getFileName() {
+            return name().toLowerCase() + ".bb";
+        }
+    }
+
+    // Indexed by Ending ordinal, null where the file wasn't there
+    private final MappedByteBuffer[] tables = new MappedByteBuffer[Ending.values().length];
+
+    /**
+     * Maps whichever bitbase files are in a directory. Endings without a file just probe as unknown.
+     *
+     * @param directory Where the files are
+     * @throws IOException If a file is there but can't be read, or is the wrong size
+     */
+    public Bitbases(Path directory) throws IOException {
+        for (Ending ending : Ending.values()) {
+            Path path = directory.resolve(ending.getFileName());
+            if (!Files.exists(path))
+                continue;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                if (channel.size() != ending.size() / 8)
+                    throw new IOException(path + " should be " + ending.size() / 8 + " bytes, not " + channel.size());
+                tables[ending.ordinal()] = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+    }
+
+    public boolean has(Ending ending) {
+        return tables[ending.ordinal()] != null;
+    }
+
+    /**
+     * Looks up a position.
+     *
+     * @param board The position
+     * @return {@link #WIN}, {@link #LOSS} or {@link #DRAW} for the side to move, or {@link #UNKNOWN}
+     */
+    public int probe(Board board) {
+        long occupied = board.getOccupancy();
+        int count = Long.bitCount(occupied);
+        if (count < 3 || count > 4)
+            return UNKNOWN;
+
+        PieceColor strong;
+        if (Long.bitCount(board.getOccupancy(PieceColor.BLACK)) == 1)
+            strong = PieceColor.WHITE;
+        else if (Long.bitCount(board.getOccupancy(PieceColor.WHITE)) == 1)
+            strong = PieceColor.BLACK;
+        else
+            return UNKNOWN;
+
+        long pawns = board.getBitboard(strong, PieceType.PAWN);
+        long knights = board.getBitboard(strong, PieceType.KNIGHT);
+        long bishops = board.getBitboard(strong, PieceType.BISHOP);
+        long rooks = board.getBitboard(strong, PieceType.ROOK);
+        long queens = board.getBitboard(strong, PieceType.QUEEN);
+        Ending ending;
+        long first, second = 0;
+        if (count == 3) {
+            if (queens != 0) {
+                ending = Ending.KQK;
+                first = queens;
+            } else if (rooks != 0) {
+                ending = Ending.KRK;
+                first = rooks;
+            } else if (pawns != 0) {
+                ending = Ending.KPK;
+                first = pawns;
+            } else {
+                return UNKNOWN;
+            }
+        } else if (bishops != 0 && knights != 0) {
+            ending = Ending.KBNK;
+            first = bishops;
+            second = knights;
+        } else {
+            return UNKNOWN;
+        }
+
+        MappedByteBuffer table = tables[ending.ordinal()];
+        if (table == null)
+            return UNKNOWN;
+
+        // Flipping top to bottom is XORing the rank bits
+        int flip = strong == PieceColor.WHITE ? 0 : 56;
+        boolean strongToMove = Utils.Turns.getColor(board) == strong;
+        long index = strongToMove ? 0 : 1;
+        index = (index << 6) | (Bitboards.first(board.getBitboard(strong, PieceType.KING)) ^ flip);
+        index = (index << 6) | (Bitboards.first(board.getBitboard(strong.getOpposite(), PieceType.KING)) ^ flip);
+        index = (index << 6) | (Bitboards.first(first) ^ flip);
+        if (second != 0)
+            index = (index << 6) | (Bitboards.first(second) ^ flip);
+
+        boolean won = (table.get((int) (index >>> 3)) >>> (index & 7) & 1) != 0;
+        if (!won)
+            return DRAW;
+        return strongToMove ? WIN : LOSS;
+    }
+
+}
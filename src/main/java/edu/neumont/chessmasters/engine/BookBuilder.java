@@ -0,0 +1,262 @@
+package edu.neumont.chessmasters.engine;
+
+import edu.neumont.chessmasters.Utils;
+import edu.neumont.chessmasters.models.Board;
+import edu.neumont.chessmasters.models.Move;
+import edu.neumont.chessmasters.models.MoveGenerator;
+import edu.neumont.chessmasters.models.pieces.Piece;
+import edu.neumont.chessmasters.models.pieces.PieceColor;
+import edu.neumont.chessmasters.models.pieces.PieceType;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds an {@link OpeningBook} from games in PGN. Every move played in the first few turns of a game is counted
+ * towards its position, weighted by how the game went for whoever played it: 2 for a win, 1 for a draw or an
+ * unknown result, and nothing for a loss. Moves that only ever lost are left out of the book.
+ */
+public class BookBuilder {
+
+    private static final Pattern SAN =
+            Pattern.compile("([NBRQK])?([a-h])?([1-8])?x?([a-h][1-8])(?:=?([NBRQ]))?");
+    private static final Pattern MOVE_NUMBER = Pattern.compile("^\\d+\\.+");
+
+    private final int maxPlies;
+    // Position hash -> book move -> weight
+    private final Map<Long, Map<Integer, Integer>> positions = new HashMap<>();
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private       int   games = 0;
+
+    /**
+     * @param maxPlies How many half-turns into each game to take moves from
+     */
+    public BookBuilder(int maxPlies) {
+        this.maxPlies = maxPlies;
+    }
+
+    /**
+     * Reads every game from some PGN.
+     *
+     * @param pgn The games
+     * @return How many games were read
+     * @throws IOException If reading fails
+     */
+    public int addGames(Reader pgn) throws IOException {
+        BufferedReader reader = new BufferedReader(pgn);
+        StringBuilder movetext = new StringBuilder();
+        String result = "*";
+        int before = games;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.startsWith("%"))
+                continue;
+            if (line.startsWith("[")) {
+                // A tag after some moves means a new game has started
+                if (movetext.length() > 0) {
+                    addGame(movetext.toString(), result);
+                    movetext.setLength(0);
+                    result = "*";
+                }
+                if (line.startsWith("[Result "))
+                    result = line.substring(line.indexOf('"') + 1, line.lastIndexOf('"'));
+                continue;
+            }
+            int comment = line.indexOf(';');
+            movetext.append(comment >= 0 ? line.substring(0, comment) : line).append(' ');
+        }
+        if (movetext.toString().trim().length() > 0)
+            addGame(movetext.toString(), result);
+        return games - before;
+    }
+
+    private void addGame(String movetext, String result) {
+        games++;
+        Board board = new Board();
+        int ply = 0;
+        for (String token : tokenize(movetext)) {
+            if (ply >= maxPlies)
+                break;
+            int move = parseSan(board, token);
+            if (move == 0) {
+                System.err.println("[ warn ] Game " + games + ": couldn't play \"" + token + "\" from " + board.toFEN()
+                        + ". Skipping the rest of the game");
+                break;
+            }
+
+            PieceColor mover = Utils.Turns.getColor(board);
+            int weight = weigh(result, mover);
+            if (weight > 0)
+                positions.computeIfAbsent(board.hash(), key -> new HashMap<>())
+                        .merge(OpeningBook.encode(move), weight, Integer::sum);
+            board.makeMove(move);
+            ply++;
+        }
+    }
+
+    private static int weigh(String result, PieceColor mover) {
+        switch (result) {
+            case "1-0":
+                return mover == PieceColor.WHITE ? 2 : 0;
+            case "0-1":
+                return mover == PieceColor.BLACK ? 2 : 0;
+            default:
+                return 1;
+        }
+    }
+
+    // Splits movetext into just its moves, dropping comments, variations, move numbers, annotations and the result
+    private static List<String> tokenize(String movetext) {
+        StringBuilder plain = new StringBuilder();
+        int variations = 0;
+        boolean comment = false;
+        for (char c : movetext.toCharArray()) {
+            if (comment) {
+                comment = c != '}';
+            } else if (c == '{') {
+                comment = true;
+            } else if (c == '(') {
+                variations++;
+            } else if (c == ')') {
+                variations = Math.max(0, variations - 1);
+            } else if (variations == 0) {
+                plain.append(c);
+            }
+        }
+
+        List<String> tokens = new ArrayList<>();
+        for (String token : plain.toString().split("\\s+")) {
+            token = MOVE_NUMBER.matcher(token).replaceFirst("").replaceAll("[!?+#]", "");
+            if (token.isEmpty() || token.startsWith("$"))
+                continue;
+            if (token.equals("1-0") || token.equals("0-1") || token.equals("1/2-1/2") || token.equals("*"))
+                break;
+            tokens.add(token);
+        }
+        return tokens;
+    }
+
+    /**
+     * Finds the legal move a move in standard algebraic notation (as in PGN, such as Nbd7 or exd8=Q) describes.
+     *
+     * @param board The position
+     * @param san   The move, without check or annotation marks
+     * @return The move, packed as in {@link Move}, or 0 if it isn't exactly one legal move
+     */
+    int parseSan(Board board, String san) {
+        int count = board.generateLegalMoves(Utils.Turns.getColor(board), moves);
+
+        boolean kingside = san.equals("O-O") || san.equals("0-0");
+        if (kingside || san.equals("O-O-O") || san.equals("0-0-0")) {
+            for (int i = 0; i < count; i++) {
+                int move = moves[i];
+                // Castles land on the rook, so the side is whichever way the king went
+                if (Move.hasFlag(move, Move.CASTLE) && (Move.getTo(move) > Move.getFrom(move)) == kingside)
+                    return move;
+            }
+            return 0;
+        }
+
+        Matcher matcher = SAN.matcher(san);
+        if (!matcher.matches())
+            return 0;
+        PieceType type = matcher.group(1) == null ? PieceType.PAWN : pieceType(matcher.group(1).charAt(0));
+        int fromFile = matcher.group(2) == null ? -1 : matcher.group(2).charAt(0) - 'a';
+        int fromRank = matcher.group(3) == null ? -1 : matcher.group(3).charAt(0) - '1';
+        String target = matcher.group(4);
+        int to = (target.charAt(1) - '1') * 8 + (target.charAt(0) - 'a');
+        PieceType promotion = matcher.group(5) == null ? null : pieceType(matcher.group(5).charAt(0));
+
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int from = Move.getFrom(move);
+            Piece piece = board.getSquare(from);
+            if (Move.getTo(move) != to || Move.hasFlag(move, Move.CASTLE) || piece.getType() != type
+                    || Move.getPromotion(move) != promotion)
+                continue;
+            if ((fromFile >= 0 && from % 8 != fromFile) || (fromRank >= 0 && from / 8 != fromRank))
+                continue;
+            if (found != 0)
+                return 0; // Ambiguous
+            found = move;
+        }
+        return found;
+    }
+
+    private static PieceType pieceType(char letter) {
+        switch (letter) {
+            case 'N':
+                return PieceType.KNIGHT;
+            case 'B':
+                return PieceType.BISHOP;
+            case 'R':
+                return PieceType.ROOK;
+            case 'Q':
+                return PieceType.QUEEN;
+            default:
+                return PieceType.KING;
+        }
+    }
+
+    /**
+     * Writes out the book, sorted by key, with each position's moves heaviest first. Weights too big for the file's
+     * 16 bits are scaled down, keeping every move at least 1.
+     *
+     * @param path Where to write it
+     * @return How many entries were written
+     * @throws IOException If writing fails
+     */
+    public int write(Path path) throws IOException {
+        Long[] keys = positions.keySet().toArray(new Long[0]);
+        Arrays.sort(keys, Long::compareUnsigned);
+
+        int entries = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            for (Long key : keys) {
+                List<Map.Entry<Integer, Integer>> bookMoves = new ArrayList<>(positions.get(key).entrySet());
+                bookMoves.sort((a, b) -> b.getValue() - a.getValue());
+                int heaviest = bookMoves.get(0).getValue();
+                for (Map.Entry<Integer, Integer> bookMove : bookMoves) {
+                    int weight = bookMove.getValue();
+                    if (heaviest > 0xFFFF)
+                        weight = (int) Math.max(1, (long) weight * 0xFFFF / heaviest);
+                    out.writeLong(key);
+                    out.writeShort(bookMove.getKey());
+                    out.writeShort(weight);
+                    out.writeInt(0);
+                    entries++;
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @return How many games have been read
+     */
+    public int getGames() {
+        return games;
+    }
+
+    /**
+     * @return How many positions have at least one book move
+     */
+    public int getPositions() {
+        return positions.size();
+    }
+
+}
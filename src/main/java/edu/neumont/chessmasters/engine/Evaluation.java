@@ -0,0 +1,30 @@
+package edu.neumont.chessmasters.engine;
+
+import edu.neumont.chessmasters.Utils;
+import edu.neumont.chessmasters.models.Board;
+import edu.neumont.chessmasters.models.PieceSquareTables;
+
+/**
+ * Scores positions for the search, in centipawns.
+ */
+public class Evaluation {
+
+    // Rough piece values, indexed by PieceType ordinal, for weighing up trades. The king can't be traded.
+    public static final int[] PIECE_VALUES = {100, 320, 330, 500, 900, 0};
+
+    /**
+     * Scores a position by material and where each piece stands. The board keeps middlegame and endgame totals for
+     * both up to date as moves are made and taken back, so all that's left here is to blend the two by how far
+     * into the game we are.
+     *
+     * @param board The position to score
+     * @return The score from the point of view of the side to move, so positive is good for them
+     */
+    public static int evaluate(Board board) {
+        int phase = Math.min(board.getPhase(), PieceSquareTables.MAX_PHASE);
+        int score = (board.getMidgameScore() * phase
+                + board.getEndgameScore() * (PieceSquareTables.MAX_PHASE - phase)) / PieceSquareTables.MAX_PHASE;
+        return Utils.Turns.isWhite(board) ? score : -score;
+    }
+
+}
@@ -0,0 +1,186 @@
+package edu.neumont.chessmasters.engine;
+
+import edu.neumont.chessmasters.models.Board;
+import edu.neumont.chessmasters.models.Move;
+import edu.neumont.chessmasters.models.MoveGenerator;
+import edu.neumont.chessmasters.models.pieces.PieceColor;
+import edu.neumont.chessmasters.models.pieces.PieceType;
+
+/**
+ * Hands out a position's moves best-first, generating them in stages so that a search which gets a cutoff early
+ * never pays for the rest:
+ * <ol>
+ *     <li>The move the transposition table remembers as best</li>
+ *     <li>Captures and promotions, most valuable victim first, then least valuable attacker</li>
+ *     <li>The two killer moves: quiet moves that caused a cutoff in a sibling position at the same ply</li>
+ *     <li>The remaining quiet moves, in order of how often they've caused cutoffs anywhere (the history table)</li>
+ * </ol>
+ * Moves are pseudo-legal, so the search still has to check that each one doesn't leave its king in check.
+ * Each ply of a search keeps its own picker, which is reused from one position to the next.
+ */
+public class MovePicker {
+
+    private static final int HASH              = 0;
+    private static final int GENERATE_CAPTURES = 1;
+    private static final int CAPTURES          = 2;
+    private static final int KILLERS           = 3;
+    private static final int GENERATE_QUIETS   = 4;
+    private static final int QUIETS            = 5;
+    private static final int DONE              = 6;
+
+    private final int[] moves  = new int[MoveGenerator.MAX_MOVES];
+    private final int[] scores = new int[MoveGenerator.MAX_MOVES];
+
+    private Board      board;
+    private PieceColor color;
+    private int        hashMove;
+    private int[]      killers;
+    private int[]      history;
+    private int        stage, count, index;
+    private boolean    capturesOnly;
+
+    /**
+     * Starts handing out the moves for a new position.
+     *
+     * @param board    The position
+     * @param color    The side to move
+     * @param hashMove The transposition table's move, or 0
+     * @param killers  The killer moves for this ply, which may be 0
+     * @param history  The history table for the side to move, indexed by from * 64 + to
+     */
+    public void reset(Board board, PieceColor color, int hashMove, int[] killers, int[] history) {
+        this.board = board;
+        this.color = color;
+        this.hashMove = hashMove;
+        this.killers = killers;
+        this.history = history;
+        this.stage = HASH;
+        this.count = 0;
+        this.index = 0;
+        this.capturesOnly = false;
+    }
+
+    /**
+     * Starts handing out just the captures and promotions for a new position, for the quiescence search.
+     *
+     * @param board The position
+     * @param color The side to move
+     */
+    public void resetCaptures(Board board, PieceColor color) {
+        this.board = board;
+        this.color = color;
+        this.hashMove = 0;
+        this.stage = GENERATE_CAPTURES;
+        this.count = 0;
+        this.index = 0;
+        this.capturesOnly = true;
+    }
+
+    /**
+     * @return The next best move, or 0 once there are none left
+     */
+    @SuppressWarnings("fallthrough") // Each stage carries on into the next once it runs out of moves
+    public int next() {
+        switch (stage) {
+            case HASH:
+                stage = GENERATE_CAPTURES;
+                if (hashMove != 0 && board.isPseudoLegal(hashMove))
+                    return hashMove;
+                // fall through
+            case GENERATE_CAPTURES:
+                count = MoveGenerator.generate(board, color, board.getOccupancy(color), MoveGenerator.CAPTURES, moves, 0);
+                for (int i = 0; i < count; i++)
+                    scores[i] = scoreCapture(moves[i]);
+                index = 0;
+                stage = CAPTURES;
+                // fall through
+            case CAPTURES:
+                while (index < count) {
+                    int move = pickBest();
+                    if (move != hashMove)
+                        return move;
+                }
+                if (capturesOnly) {
+                    stage = DONE;
+                    return 0;
+                }
+                index = 0;
+                stage = KILLERS;
+                // fall through
+            case KILLERS:
+                while (index < killers.length) {
+                    int killer = killers[index++];
+                    if (killer != 0 && killer != hashMove && board.isPseudoLegal(killer))
+                        return killer;
+                }
+                stage = GENERATE_QUIETS;
+                // fall through
+            case GENERATE_QUIETS:
+                count = MoveGenerator.generate(board, color, board.getOccupancy(color), MoveGenerator.QUIETS, moves, 0);
+                for (int i = 0; i < count; i++)
+                    scores[i] = history[historyIndex(moves[i])];
+                index = 0;
+                stage = QUIETS;
+                // fall through
+            case QUIETS:
+                while (index < count) {
+                    int move = pickBest();
+                    if (move != hashMove && !isKiller(move))
+                        return move;
+                }
+                stage = DONE;
+                // fall through
+            default:
+                return 0;
+        }
+    }
+
+    // Swaps the best of the remaining moves to the front and takes it. Picking one at a time beats sorting,
+    // as a cutoff often comes long before the end of the list.
+    private int pickBest() {
+        int best = index;
+        for (int i = index + 1; i < count; i++)
+            if (scores[i] > scores[best])
+                best = i;
+        int move = moves[best];
+        moves[best] = moves[index];
+        scores[best] = scores[index];
+        index++;
+        return move;
+    }
+
+    private boolean isKiller(int move) {
+        for (int killer : killers)
+            if (killer == move)
+                return true;
+        return false;
+    }
+
+    private int scoreCapture(int move) {
+        int score = 0;
+        if (Move.hasFlag(move, Move.CAPTURE)) {
+            // En passant captures land behind the pawn they take, on an empty square
+            PieceType victim = Move.hasFlag(move, Move.EN_PASSANT)
+                    ? PieceType.PAWN
+                    : board.getSquare(Move.getTo(move)).getType();
+            PieceType attacker = board.getSquare(Move.getFrom(move)).getType();
+            score = Evaluation.PIECE_VALUES[victim.ordinal()] * 10 - Evaluation.PIECE_VALUES[attacker.ordinal()];
+        }
+        PieceType promotion = Move.getPromotion(move);
+        if (promotion != null)
+            score += Evaluation.PIECE_VALUES[promotion.ordinal()] * 10;
+        return score;
+    }
+
+    /**
+     * Whether a move belongs with the quiet moves, and so can be a killer or earn history.
+     */
+    public static boolean isQuiet(int move) {
+        return !Move.hasFlag(move, Move.CAPTURE) && Move.getPromotion(move) == null;
+    }
+
+    public static int historyIndex(int move) {
+        return Move.getFrom(move) * 64 + Move.getTo(move);
+    }
+
+}
@@ -0,0 +1,148 @@
+package edu.neumont.chessmasters.engine;
+
+import edu.neumont.chessmasters.Utils;
+import edu.neumont.chessmasters.models.Board;
+import edu.neumont.chessmasters.models.Move;
+import edu.neumont.chessmasters.models.MoveGenerator;
+import edu.neumont.chessmasters.models.pieces.PieceType;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * An opening book: the moves played from each position in a collection of games, weighted by how well they did.
+ * <br/>
+ * The file is laid out like a Polyglot book, as 16-byte big-endian entries sorted by key: the position's hash (8
+ * bytes), the move (2), its weight (2) and 4 unused bytes. A move is the to square in the low 6 bits, the from square
+ * in the next 6, then the promotion (1 for a knight up to 4 for a queen), with castles written as the king taking its
+ * own rook. The keys are our own {@link Board#hash()} rather than Polyglot's, so books built elsewhere won't match;
+ * use {@link BookBuilder} to make one.
+ * <br/>
+ * The file is memory-mapped rather than read in, so the book costs nothing on the heap however big it is, and a probe
+ * is a binary search over the mapping that allocates nothing. Instances reuse a move buffer, so each thread needs its
+ * own.
+ */
+public class OpeningBook {
+
+    static final int ENTRY_BYTES = 16;
+
+    private final MappedByteBuffer entries;
+    private final int              size;
+    private final int[]            moves = new int[MoveGenerator.MAX_MOVES];
+
+    /**
+     * Maps a book file into memory.
+     *
+     * @param path The book
+     * @throws IOException If the file can't be read, or isn't a whole number of entries
+     */
+    public OpeningBook(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long bytes = channel.size();
+            if (bytes % ENTRY_BYTES != 0)
+                throw new IOException(path + " isn't an opening book: its size isn't a multiple of " + ENTRY_BYTES + " bytes");
+            if (bytes > Integer.MAX_VALUE)
+                throw new IOException(path + " is too big to map; books are limited to 2GB");
+            // The mapping stays valid once the channel is closed
+            this.entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, bytes);
+            this.size = (int) (bytes / ENTRY_BYTES);
+        }
+    }
+
+    /**
+     * @return How many entries the book holds, across all its positions
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Counts the book moves for a position.
+     *
+     * @param board The position
+     * @return How many moves the book has for it
+     */
+    public int count(Board board) {
+        long key = board.hash();
+        int count = 0;
+        for (int i = find(key); i < size && getKey(i) == key; i++)
+            count++;
+        return count;
+    }
+
+    /**
+     * Picks one of the book's moves for a position at random, each move being as likely as its share of the weight.
+     *
+     * @param board  The position
+     * @param random Where the randomness comes from
+     * @return The move, packed as in {@link Move}, or 0 if the book doesn't know the position
+     */
+    public int pick(Board board, Random random) {
+        long key = board.hash();
+        int first = find(key);
+        int total = 0;
+        for (int i = first; i < size && getKey(i) == key; i++)
+            total += getWeight(i);
+        if (total == 0)
+            return 0;
+
+        int roll = random.nextInt(total);
+        int i = first;
+        while ((roll -= getWeight(i)) >= 0)
+            i++;
+        return toMove(board, getMove(i));
+    }
+
+    // The index of the first entry whose key is at least the given one. Keys are sorted as unsigned numbers.
+    private int find(long key) {
+        int low = 0, high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(getKey(middle), key) < 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    private long getKey(int index) {
+        return entries.getLong(index * ENTRY_BYTES);
+    }
+
+    private int getMove(int index) {
+        return entries.getShort(index * ENTRY_BYTES + 8) & 0xFFFF;
+    }
+
+    private int getWeight(int index) {
+        return entries.getShort(index * ENTRY_BYTES + 10) & 0xFFFF;
+    }
+
+    // Matches a book move to a legal move in the position. A different position with the same hash could share the
+    // entry, so a move that isn't legal here is treated as no move at all.
+    private int toMove(Board board, int bookMove) {
+        int count = board.generateLegalMoves(Utils.Turns.getColor(board), moves);
+        for (int i = 0; i < count; i++)
+            if (encode(moves[i]) == bookMove)
+                return moves[i];
+        return 0;
+    }
+
+    /**
+     * Packs a move the way the book stores it.
+     *
+     * @param move A move, packed as in {@link Move}
+     * @return The book's 16-bit form of it
+     */
+    static int encode(int move) {
+        PieceType promotion = Move.getPromotion(move);
+        // Knights are ordinal 1 up to queens at 4, which is just how the book numbers them
+        int promotionBits = promotion == null ? 0 : promotion.ordinal();
+        return Move.getTo(move) | (Move.getFrom(move) << 6) | (promotionBits << 12);
+    }
+
+}
@@ -0,0 +1,416 @@
+package edu.neumont.chessmasters.engine;
+
+import edu.neumont.chessmasters.Utils;
+import edu.neumont.chessmasters.models.Board;
+import edu.neumont.chessmasters.models.pieces.PieceColor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Finds the best move in a position with a negamax alpha-beta search. Each iteration searches one half-turn deeper
+ * than the last, until the time or node budget runs out, and the deepest iteration to finish gives the answer.
+ * Earlier iterations leave their results in the transposition table, which makes the later ones much cheaper.
+ * <br/>
+ * Moves are played on a copy of the board with {@link Board#makeMove(int)} and taken back with
+ * {@link Board#unmakeMove()}, so the board is only copied once per search thread.
+ * <br/>
+ * With more than one thread, the extra threads search the same position alongside the main one (Lazy SMP).
+ * They share nothing but the transposition table, where their results speed up the main thread's search.
+ * Every other helper searches a half-turn deeper than the main thread, so they don't all repeat the same work.
+ * Only the main thread's result is reported.
+ */
+public class Search {
+
+    public static final int INFINITY  = 30000;
+    public static final int MATE      = 29000;
+    public static final int MAX_PLY   = 128;
+    // Scores past this are mates, counted in half-turns from the root
+    private static final int MATE_BOUND = MATE - MAX_PLY;
+    // Added to the evaluation of positions the bitbases say are won. Well clear of the mates, but well above
+    // anything the evaluation could come up with.
+    public static final int KNOWN_WIN  = 20000;
+    private static final int HISTORY_LIMIT = 1 << 24;
+
+    private final TranspositionTable table;
+    private final Worker[]           workers;
+    private final ExecutorService    helpers;
+    private       Bitbases           bitbases;
+
+    private          long       nodeLimit;
+    private          long       deadline;
+    private final    AtomicLong sharedNodes = new AtomicLong();
+    private volatile boolean    stopped;
+
+    public Search(TranspositionTable table) {
+        this(table, 1);
+    }
+
+    /**
+     * @param table   The table to share between threads
+     * @param threads The number of threads to search with, including the one calling {@link #search}
+     */
+    public Search(TranspositionTable table, int threads) {
+        this.table = table;
+        this.workers = new Worker[Math.max(1, threads)];
+        for (int i = 0; i < workers.length; i++)
+            workers[i] = new Worker(i);
+        this.helpers = workers.length == 1 ? null : Executors.newFixedThreadPool(workers.length - 1, r -> {
+            Thread thread = new Thread(r, "search-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getThreads() {
+        return workers.length;
+    }
+
+    /**
+     * Stops the helper threads. The search can't be used after this.
+     */
+    public void close() {
+        if (helpers != null)
+            helpers.shutdownNow();
+    }
+
+    /**
+     * @param bitbases Endgame bitbases to look positions up in, or null for none
+     */
+    public void setBitbases(Bitbases bitbases) {
+        this.bitbases = bitbases;
+    }
+
+    /**
+     * Searches the position for the side to move. The board itself isn't touched.
+     *
+     * @param position The position to search
+     * @param millis   How long to search for, or 0 for no limit
+     * @param maxNodes How many nodes to search across all threads, or 0 for no limit
+     * @param maxDepth The deepest iteration to run
+     * @param progress Called with the result of each iteration as it finishes, or null
+     * @return The result of the deepest iteration the main thread finished
+     */
+    public SearchResult search(Board position, long millis, long maxNodes, int maxDepth, Consumer<SearchResult> progress) {
+        long start = System.nanoTime();
+        this.nodeLimit = maxNodes > 0 ? maxNodes : Long.MAX_VALUE;
+        this.deadline = millis > 0 ? start + millis * 1_000_000 : Long.MAX_VALUE;
+        this.sharedNodes.set(0);
+        this.stopped = false;
+        table.newSearch();
+        maxDepth = Math.min(maxDepth, MAX_PLY - 2);
+
+        for (Worker worker : workers)
+            worker.reset(new Board(position));
+        List<Future<?>> running = new ArrayList<>();
+        for (int i = 1; i < workers.length; i++) {
+            Worker worker = workers[i];
+            int depth = maxDepth;
+            running.add(helpers.submit(() -> worker.iterate(depth)));
+        }
+
+        Worker main = workers[0];
+        SearchResult best = new SearchResult(0, 0, 0, 0, 0, new int[0]);
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            int score = main.searchRoot(depth);
+            if (stopped) break;
+
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+            best = new SearchResult(main.getBestMove(), score, depth, getNodes(), elapsed, main.getPv());
+            if (progress != null)
+                progress.accept(best);
+            // Stop once there's nothing left to choose between, or the next iteration surely won't finish in time
+            if (best.move == 0 || isMate(score)
+                    || (millis > 0 && System.nanoTime() - start > (deadline - start) / 2))
+                break;
+        }
+
+        stopped = true;
+        for (Future<?> helper : running) {
+            try {
+                helper.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("A search thread failed", e.getCause());
+            }
+        }
+        for (Worker worker : workers)
+            worker.board = null;
+
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        return new SearchResult(best.move, best.score, best.depth, getNodes(), elapsed, best.pv);
+    }
+
+    private long getNodes() {
+        long nodes = 0;
+        for (Worker worker : workers)
+            nodes += worker.nodes;
+        return nodes;
+    }
+
+    /**
+     * One thread's share of a search. Each has its own board and buffers, so only the table and the stop flag
+     * are shared.
+     */
+    private class Worker {
+
+        private final int   id;
+        private       Board board;
+        private       long  nodes;
+        private       int   rootDepth;
+
+        private final MovePicker[] pickers  = new MovePicker[MAX_PLY];
+        // Triangular PV table: pv[ply] holds the best line found from that ply, pvLength[ply] where it ends
+        private final int[][]      pv       = new int[MAX_PLY][MAX_PLY];
+        private final int[]        pvLength = new int[MAX_PLY];
+        // Two quiet moves per ply that recently caused a cutoff, newest first
+        private final int[][]      killers  = new int[MAX_PLY][2];
+        // How much each quiet move has caused cutoffs, indexed [color][from * 64 + to]
+        private final int[][]      history  = new int[2][64 * 64];
+        private final StaticExchange exchange = new StaticExchange();
+
+        Worker(int id) {
+            this.id = id;
+            for (int i = 0; i < MAX_PLY; i++)
+                pickers[i] = new MovePicker();
+        }
+
+        void reset(Board board) {
+            this.board = board;
+            this.nodes = 0;
+            this.pvLength[0] = 0;
+            for (int[] ply : killers)
+                Arrays.fill(ply, 0);
+            for (int[] color : history)
+                Arrays.fill(color, 0);
+        }
+
+        // Helpers keep deepening until the main thread is done, half of them a half-turn ahead of it
+        void iterate(int maxDepth) {
+            for (int depth = 1 + (id & 1); depth <= maxDepth && !stopped; depth++)
+                searchRoot(depth);
+        }
+
+        int searchRoot(int depth) {
+            rootDepth = depth;
+            return negamax(depth, 0, -INFINITY, INFINITY);
+        }
+
+        int getBestMove() {
+            return pvLength[0] > 0 ? pv[0][0] : 0;
+        }
+
+        int[] getPv() {
+            return Arrays.copyOf(pv[0], pvLength[0]);
+        }
+
+        // Counts a node, and checks whether it's time to stop
+        private boolean countNode() {
+            if ((++nodes & 1023) == 0) {
+                long total = sharedNodes.addAndGet(1024);
+                // The main thread's first iteration always finishes, so there's always a move to play
+                if (id == 0 && rootDepth > 1 && (total >= nodeLimit || System.nanoTime() >= deadline))
+                    stopped = true;
+            }
+            return stopped;
+        }
+
+        private int negamax(int depth, int ply, int alpha, int beta) {
+            pvLength[ply] = 0;
+            if (countNode()) return 0;
+
+            if (ply > 0) {
+                if (board.getMovesSinceCap() >= 50 || board.getRepetitionCount() >= 2)
+                    return 0;
+                // No line can be longer than the mate we've already found, so don't look for one
+                alpha = Math.max(alpha, -MATE + ply);
+                beta = Math.min(beta, MATE - ply - 1);
+                if (alpha >= beta) return alpha;
+
+                int known = bitbases == null ? Bitbases.UNKNOWN : bitbases.probe(board);
+                if (known == Bitbases.DRAW)
+                    return 0;
+                // A win still has to be found over the board, so only take the bitbases' word for it when the
+                // capture or pawn move that got here is what's being weighed up. Past that, the search finds the
+                // mate, with drawn positions scored as such along the way.
+                if (known != Bitbases.UNKNOWN && board.getMovesSinceCap() == 0) {
+                    int score = KNOWN_WIN + Math.abs(Evaluation.evaluate(board));
+                    return known == Bitbases.WIN ? score : -score;
+                }
+            }
+            if (depth <= 0)
+                return quiesce(ply, alpha, beta);
+            if (ply >= MAX_PLY - 1)
+                return Evaluation.evaluate(board);
+
+            long key = board.hash();
+            long entry = table.probe(key);
+            int hashMove = 0;
+            if (entry != 0) {
+                hashMove = TranspositionTable.getMove(entry);
+                if (ply > 0 && TranspositionTable.getDepth(entry) >= depth) {
+                    int score = fromTable(TranspositionTable.getScore(entry), ply);
+                    int bound = TranspositionTable.getBound(entry);
+                    if (bound == TranspositionTable.EXACT
+                            || (bound == TranspositionTable.LOWER && score >= beta)
+                            || (bound == TranspositionTable.UPPER && score <= alpha))
+                        return score;
+                }
+            }
+
+            PieceColor color = Utils.Turns.getColor(board);
+            MovePicker picker = pickers[ply];
+            picker.reset(board, color, hashMove, killers[ply], history[color.ordinal()]);
+
+            int originalAlpha = alpha;
+            int bestMove = 0;
+            int bestScore = -INFINITY;
+            int legal = 0;
+            for (int move = picker.next(); move != 0; move = picker.next()) {
+                board.makeMove(move);
+                // The picker's moves are only pseudo-legal
+                if (board.isInCheck(color)) {
+                    board.unmakeMove();
+                    continue;
+                }
+                legal++;
+                int score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+                board.unmakeMove();
+                if (stopped) return 0;
+
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestMove = move;
+                    if (score > alpha) {
+                        alpha = score;
+                        updatePv(ply, move);
+                        if (alpha >= beta) {
+                            if (MovePicker.isQuiet(move))
+                                rememberCutoff(move, color, ply, depth);
+                            break;
+                        }
+                    }
+                }
+            }
+            if (legal == 0)
+                return board.isInCheck(color) ? -MATE + ply : 0;
+
+            int bound = bestScore >= beta ? TranspositionTable.LOWER
+                    : bestScore > originalAlpha ? TranspositionTable.EXACT
+                    : TranspositionTable.UPPER;
+            table.store(key, bestMove, toTable(bestScore, ply), depth, bound);
+            return bestScore;
+        }
+
+        /**
+         * Plays out the captures from a leaf, so that it isn't scored in the middle of an exchange. The side to move
+         * can always decline to capture, so the static score is a lower bound (the stand pat), and captures that
+         * lose material by static exchange aren't tried at all. In check there's no standing pat, so every move is
+         * searched.
+         */
+        private int quiesce(int ply, int alpha, int beta) {
+            pvLength[ply] = 0;
+            if (countNode()) return 0;
+            if (ply >= MAX_PLY - 1)
+                return Evaluation.evaluate(board);
+
+            PieceColor color = Utils.Turns.getColor(board);
+            boolean inCheck = board.isInCheck(color);
+            int bestScore = -INFINITY;
+            MovePicker picker = pickers[ply];
+            if (inCheck) {
+                picker.reset(board, color, 0, killers[ply], history[color.ordinal()]);
+            } else {
+                bestScore = Evaluation.evaluate(board);
+                if (bestScore >= beta) return bestScore;
+                alpha = Math.max(alpha, bestScore);
+                picker.resetCaptures(board, color);
+            }
+
+            int legal = 0;
+            for (int move = picker.next(); move != 0; move = picker.next()) {
+                if (!inCheck && exchange.evaluate(board, move) < 0)
+                    continue;
+                board.makeMove(move);
+                if (board.isInCheck(color)) {
+                    board.unmakeMove();
+                    continue;
+                }
+                legal++;
+                int score = -quiesce(ply + 1, -beta, -alpha);
+                board.unmakeMove();
+                if (stopped) return 0;
+
+                if (score > bestScore) {
+                    bestScore = score;
+                    if (score > alpha) {
+                        alpha = score;
+                        updatePv(ply, move);
+                        if (alpha >= beta) break;
+                    }
+                }
+            }
+            if (inCheck && legal == 0)
+                return -MATE + ply;
+            return bestScore;
+        }
+
+        private void rememberCutoff(int move, PieceColor color, int ply, int depth) {
+            if (killers[ply][0] != move) {
+                killers[ply][1] = killers[ply][0];
+                killers[ply][0] = move;
+            }
+            int[] table = history[color.ordinal()];
+            int index = MovePicker.historyIndex(move);
+            table[index] += depth * depth;
+            // Keep the scores from overflowing, while keeping their order
+            if (table[index] > HISTORY_LIMIT)
+                for (int i = 0; i < table.length; i++)
+                    table[i] /= 2;
+        }
+
+        private void updatePv(int ply, int move) {
+            pv[ply][0] = move;
+            System.arraycopy(pv[ply + 1], 0, pv[ply], 1, pvLength[ply + 1]);
+            pvLength[ply] = pvLength[ply + 1] + 1;
+        }
+
+    }
+
+    // Mate scores count from the root, but the table needs them counted from the position they're stored for
+    private static int toTable(int score, int ply) {
+        if (score > MATE_BOUND) return score + ply;
+        if (score < -MATE_BOUND) return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score > MATE_BOUND) return score - ply;
+        if (score < -MATE_BOUND) return score + ply;
+        return score;
+    }
+
+    public static boolean isMate(int score) {
+        return Math.abs(score) > MATE_BOUND;
+    }
+
+    /**
+     * Formats a score for display, in pawns, or as the number of moves to a mate.
+     */
+    public static String formatScore(int score) {
+        if (isMate(score)) {
+            int moves = (MATE - Math.abs(score) + 1) / 2;
+            return (score > 0 ? "mate in " : "mated in ") + moves;
+        }
+        return String.format("%+.2f", score / 100.0);
+    }
+
+}
@@ -0,0 +1,42 @@
+package edu.neumont.chessmasters.engine;
+
+import edu.neumont.chessmasters.models.Move;
+
+/**
+ * What a search found: the best move and the line it expects to follow, from the deepest iteration that finished.
+ */
+public class SearchResult {
+
+    public final int    move;  // Packed as in Move, or 0 if there are no legal moves
+    public final int    score; // Centipawns from the mover's point of view. See Search#isMate
+    public final int    depth;
+    public final long   nodes;
+    public final long   millis;
+    public final int[]  pv;
+
+    public SearchResult(int move, int score, int depth, long nodes, long millis, int[] pv) {
+        this.move = move;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.millis = millis;
+        this.pv = pv;
+    }
+
+    public String getPvString() {
+        StringBuilder out = new StringBuilder();
+        for (int move : pv) {
+            if (out.length() > 0) out.append(", ");
+            out.append(Move.decode(move));
+        }
+        return out.toString();
+    }
+
+    @Override
+    public String toString() {
+        long nps = millis == 0 ? 0 : nodes * 1000 / millis;
+        return "depth " + depth + " score " + Search.formatScore(score) + " nodes " + nodes
+                + " time " + millis + "ms (" + nps + " nodes/s) pv " + getPvString();
+    }
+
+}
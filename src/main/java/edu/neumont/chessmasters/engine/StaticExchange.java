@@ -0,0 +1,117 @@
+package edu.neumont.chessmasters.engine;
+
+import edu.neumont.chessmasters.models.Bitboards;
+import edu.neumont.chessmasters.models.Board;
+import edu.neumont.chessmasters.models.Move;
+import edu.neumont.chessmasters.models.pieces.PieceColor;
+import edu.neumont.chessmasters.models.pieces.PieceType;
+
+/**
+ * Static exchange evaluation: works out what a capture wins once both sides have finished recapturing on its
+ * square, each always recapturing with their least valuable piece, and either side free to stop when carrying on
+ * would lose them material. Only the one square is looked at, so pins and checks elsewhere are ignored, but it
+ * costs a handful of attack table lookups rather than a search.
+ * <br/>
+ * Instances reuse a scratch buffer, so each search thread needs its own.
+ */
+public class StaticExchange {
+
+    private static final int[] VALUES = Evaluation.PIECE_VALUES;
+    // Kings can't actually be captured, but a king recapturing into an attack is never good, so this makes sure
+    // the exchange stops there
+    private static final int   KING_VALUE = 20000;
+    // values() hands out a fresh copy each call, which adds up over every step of every exchange
+    private static final PieceType[] TYPES = PieceType.values();
+
+    // gain[n] is what the side making the nth capture has won, if the exchange stops there
+    private final int[] gain = new int[32];
+
+    /**
+     * Evaluates a capture or promotion.
+     *
+     * @param board The position, before the move
+     * @param move  The move, packed as in {@link Move}
+     * @return The material the mover expects to gain, in centipawns. Negative if the move loses material.
+     */
+    public int evaluate(Board board, int move) {
+        int from = Move.getFrom(move), to = Move.getTo(move);
+        PieceColor side = board.getSquare(from).getColor();
+        long occupied = board.getOccupancy();
+
+        PieceType promotion = Move.getPromotion(move);
+        // What stands on the square after each capture, and so is what the next capture wins
+        int onSquare = promotion != null ? VALUES[promotion.ordinal()] : value(board.getSquare(from).getType());
+
+        if (Move.hasFlag(move, Move.EN_PASSANT)) {
+            gain[0] = VALUES[PieceType.PAWN.ordinal()];
+            occupied &= ~Bitboards.bit(side == PieceColor.WHITE ? to - 8 : to + 8);
+        } else {
+            gain[0] = Move.hasFlag(move, Move.CAPTURE) ? value(board.getSquare(to).getType()) : 0;
+        }
+        if (promotion != null)
+            gain[0] += VALUES[promotion.ordinal()] - VALUES[PieceType.PAWN.ordinal()];
+        occupied &= ~Bitboards.bit(from);
+
+        long attackers = attackersTo(board, to, occupied);
+        int depth = 0;
+        side = side.getOpposite();
+        while (true) {
+            long mine = attackers & occupied & board.getOccupancy(side);
+            if (mine == 0) break;
+
+            // Recapture with the least valuable piece
+            PieceType attacker = null;
+            long bit = 0;
+            for (PieceType type : TYPES) {
+                long pieces = mine & board.getBitboard(side, type);
+                if (pieces != 0) {
+                    attacker = type;
+                    bit = pieces & -pieces;
+                    break;
+                }
+            }
+
+            depth++;
+            gain[depth] = onSquare - gain[depth - 1];
+            if (depth == gain.length - 1) break;
+
+            onSquare = value(attacker);
+            occupied &= ~bit;
+            // Taking a slider off the line may uncover another behind it
+            attackers |= xRays(board, to, occupied);
+            side = side.getOpposite();
+        }
+
+        // Work back from the end of the exchange, letting each side stop when capturing would lose them material
+        for (; depth > 0; depth--)
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+        return gain[0];
+    }
+
+    private static int value(PieceType type) {
+        return type == PieceType.KING ? KING_VALUE : VALUES[type.ordinal()];
+    }
+
+    // Every piece of either color attacking the square, given which squares are occupied
+    private static long attackersTo(Board board, int square, long occupied) {
+        long whitePawns = board.getBitboard(PieceColor.WHITE, PieceType.PAWN);
+        long blackPawns = board.getBitboard(PieceColor.BLACK, PieceType.PAWN);
+        long knights = board.getBitboard(PieceColor.WHITE, PieceType.KNIGHT) | board.getBitboard(PieceColor.BLACK, PieceType.KNIGHT);
+        long kings = board.getBitboard(PieceColor.WHITE, PieceType.KING) | board.getBitboard(PieceColor.BLACK, PieceType.KING);
+        // A pawn attacks the square if a pawn of the other color on that square would attack the pawn
+        return (Bitboards.pawnAttacks(PieceColor.BLACK.ordinal(), square) & whitePawns)
+                | (Bitboards.pawnAttacks(PieceColor.WHITE.ordinal(), square) & blackPawns)
+                | (Bitboards.knightAttacks(square) & knights)
+                | (Bitboards.kingAttacks(square) & kings)
+                | xRays(board, square, occupied);
+    }
+
+    private static long xRays(Board board, int square, long occupied) {
+        long queens = board.getBitboard(PieceColor.WHITE, PieceType.QUEEN) | board.getBitboard(PieceColor.BLACK, PieceType.QUEEN);
+        long bishops = board.getBitboard(PieceColor.WHITE, PieceType.BISHOP) | board.getBitboard(PieceColor.BLACK, PieceType.BISHOP) | queens;
+        long rooks = board.getBitboard(PieceColor.WHITE, PieceType.ROOK) | board.getBitboard(PieceColor.BLACK, PieceType.ROOK) | queens;
+        return ((Bitboards.bishopAttacks(square, occupied) & bishops)
+                | (Bitboards.rookAttacks(square, occupied) & rooks)) & occupied;
+    }
+
+}
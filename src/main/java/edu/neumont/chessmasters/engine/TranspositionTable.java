@@ -0,0 +1,183 @@
+package edu.neumont.chessmasters.engine;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A fixed-size table of search results keyed by position hash (see {@link edu.neumont.chessmasters.models.Board#hash()}),
+ * stored off the Java heap in direct buffers so that millions of entries cost nothing to the garbage collector.
+ * <br/>
+ * Each entry is two longs: the entry's data, and the position's key XORed with that data. A probe only accepts the
+ * entry if XORing them back together gives the key it's looking for. Two threads writing the same entry at once can
+ * leave the halves mismatched, but then the XOR check fails and the entry is treated as missing, so the table can be
+ * shared between search threads without any locking.
+ * <br/>
+ * Entries are grouped in buckets of two. The first slot is depth-preferred: it's only replaced by a deeper search
+ * of a different position, or once its entry is left over from an earlier search. The second slot takes whatever
+ * the first one turns down.
+ */
+public class TranspositionTable {
+
+    public static final int EXACT = 1; // The score is exact
+    public static final int LOWER = 2; // The score is a lower bound (the search failed high)
+    public static final int UPPER = 3; // The score is an upper bound (the search failed low)
+
+    private static final int ENTRY_BYTES  = 16;
+    private static final int BUCKET_BYTES = ENTRY_BYTES * 2;
+    // A single buffer can't be bigger than 2GB, so large tables are split into 1GB segments
+    private static final int SEGMENT_SHIFT = 30;
+
+    // Data layout, from the lowest bit: move (20 bits), score (16, signed), depth (8), bound (2), age (6)
+    private static final int MOVE_BITS   = 20;
+    private static final int SCORE_SHIFT = 20;
+    private static final int DEPTH_SHIFT = 36;
+    private static final int BOUND_SHIFT = 44;
+    private static final int AGE_SHIFT   = 46;
+
+    private final ByteBuffer[] segments;
+    private final long         bucketMask;
+    private final int          bucketsPerSegmentShift;
+    private       int          age = 0;
+
+    /**
+     * Creates a table using at most the given amount of memory. The number of buckets is rounded down to a power
+     * of two.
+     *
+     * @param megabytes The memory budget, in megabytes
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1)
+            throw new IllegalArgumentException("A transposition table needs at least 1MB, not " + megabytes + "MB");
+        long buckets = Long.highestOneBit(((long) megabytes << 20) / BUCKET_BYTES);
+        long bytes = buckets * BUCKET_BYTES;
+        long segmentBytes = Math.min(bytes, 1L << SEGMENT_SHIFT);
+
+        this.bucketMask = buckets - 1;
+        this.bucketsPerSegmentShift = Long.numberOfTrailingZeros(segmentBytes / BUCKET_BYTES);
+        this.segments = new ByteBuffer[(int) (bytes / segmentBytes)];
+        for (int i = 0; i < segments.length; i++)
+            segments[i] = ByteBuffer.allocateDirect((int) segmentBytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Looks a position up.
+     *
+     * @param key The position's hash
+     * @return The entry's packed data, read with the static getters, or 0 if the position isn't stored
+     */
+    public long probe(long key) {
+        ByteBuffer segment = segmentFor(key);
+        int bucket = offsetFor(key);
+        for (int slot = bucket; slot < bucket + BUCKET_BYTES; slot += ENTRY_BYTES) {
+            long data = segment.getLong(slot + 8);
+            if ((segment.getLong(slot) ^ data) == key && data != 0)
+                return data;
+        }
+        return 0;
+    }
+
+    /**
+     * Stores a search result.
+     *
+     * @param key   The position's hash
+     * @param move  The best move found, packed as in {@link edu.neumont.chessmasters.models.Move}, or 0 for none
+     * @param score The score, which must fit in a short
+     * @param depth The depth searched, from 0 to 255
+     * @param bound One of {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        ByteBuffer segment = segmentFor(key);
+        int bucket = offsetFor(key);
+        int preferred = bucket, always = bucket + ENTRY_BYTES;
+
+        long old = segment.getLong(preferred + 8);
+        boolean sameKey = (segment.getLong(preferred) ^ old) == key;
+        // Keep the best move we already knew if this search didn't find one
+        if (sameKey && move == 0)
+            move = getMove(old);
+
+        long data = pack(move, score, depth, bound);
+        if (sameKey || old == 0 || depth >= getDepth(old) || getAge(old) != age) {
+            write(segment, preferred, key, data);
+        } else {
+            long other = segment.getLong(always + 8);
+            if (move == 0 && (segment.getLong(always) ^ other) == key)
+                data = pack(getMove(other), score, depth, bound);
+            write(segment, always, key, data);
+        }
+    }
+
+    private static void write(ByteBuffer segment, int slot, long key, long data) {
+        segment.putLong(slot, key ^ data);
+        segment.putLong(slot + 8, data);
+    }
+
+    private long pack(int move, int score, int depth, int bound) {
+        return (move & ((1L << MOVE_BITS) - 1))
+                | ((long) (score & 0xFFFF) << SCORE_SHIFT)
+                | ((long) (depth & 0xFF) << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT)
+                | ((long) age << AGE_SHIFT);
+    }
+
+    private ByteBuffer segmentFor(long key) {
+        return segments[(int) ((key & bucketMask) >>> bucketsPerSegmentShift)];
+    }
+
+    private int offsetFor(long key) {
+        return (int) (key & bucketMask & ((1L << bucketsPerSegmentShift) - 1)) * BUCKET_BYTES;
+    }
+
+    /**
+     * Marks the start of a new search, so that entries from earlier searches give way to new ones.
+     */
+    public void newSearch() {
+        age = (age + 1) & 0x3F;
+    }
+
+    public void clear() {
+        for (ByteBuffer segment : segments)
+            for (int i = 0; i < segment.capacity(); i += 8)
+                segment.putLong(i, 0);
+    }
+
+    /**
+     * Estimates how full the table is by sampling the first thousand buckets.
+     *
+     * @return The number of used slots per thousand
+     */
+    public int hashfull() {
+        ByteBuffer segment = segments[0];
+        int sampled = Math.min(1000, segment.capacity() / ENTRY_BYTES), used = 0;
+        for (int i = 0; i < sampled; i++) {
+            long data = segment.getLong(i * ENTRY_BYTES + 8);
+            if (data != 0 && getAge(data) == age) used++;
+        }
+        return used * 1000 / sampled;
+    }
+
+    public long getSizeInBytes() {
+        return (bucketMask + 1) * BUCKET_BYTES;
+    }
+
+    public static int getMove(long data) {
+        return (int) (data & ((1L << MOVE_BITS) - 1));
+    }
+
+    public static int getScore(long data) {
+        return (short) (data >>> SCORE_SHIFT);
+    }
+
+    public static int getDepth(long data) {
+        return (int) ((data >>> DEPTH_SHIFT) & 0xFF);
+    }
+
+    public static int getBound(long data) {
+        return (int) ((data >>> BOUND_SHIFT) & 0x3);
+    }
+
+    private static int getAge(long data) {
+        return (int) ((data >>> AGE_SHIFT) & 0x3F);
+    }
+
+}
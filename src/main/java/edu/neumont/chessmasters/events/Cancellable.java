@@ -0,0 +1,13 @@
+package edu.neumont.chessmasters.events;
+
+/**
+ * An event a handler can veto. Once one has, handlers marked {@link edu.neumont.chessmasters.annotations.EventHandler#ignoreCancelled()}
+ * aren't called for it.
+ */
+public interface Cancellable {
+
+    boolean isCancelled();
+
+    void setCancelled(boolean cancelled);
+
+}
@@ -1,82 +1,78 @@
 package edu.neumont.chessmasters.events;
 
-import edu.neumont.chessmasters.ChessMasters;
 import edu.neumont.chessmasters.annotations.EventHandler;
-import edu.neumont.chessmasters.controllers.PlayerMove;
 import edu.neumont.chessmasters.models.Board;
+import edu.neumont.chessmasters.models.GameSession;
+import edu.neumont.chessmasters.models.GameStatus;
 import edu.neumont.chessmasters.models.Location;
 import edu.neumont.chessmasters.models.pieces.*;
 
 public class EventListener {
 
-    @EventHandler
+    private final GameSession session;
+
+    public EventListener(GameSession session) {
+        this.session = session;
+    }
+
+    @EventHandler(ignoreCancelled = true)
     public void preMove(PrePieceMoveEvent event) {
-        Board tempBoard = new Board(event.getBoard());
-        King king = tempBoard.getKing(event.getPiece().getColor());
-        boolean initialCheck = tempBoard.isInCheck(king);
+        Board board = event.getBoard();
+        // We can only judge the move against a board the piece is actually standing on
+        if (event.getFrom() == null || board.getSquare(event.getFrom()) != event.getPiece())
+            return;
+        King king = board.getKing(event.getPiece().getColor());
+        boolean initialCheck = board.isInCheck(king);
         if (event.isCastle()) {
             if (initialCheck) {
                 event.setCancelled(true);
                 if (!event.isQuiet())
-                    ChessMasters.controller.setStatus("You can't castle to get out of check.");
+                    session.setStatus("You can't castle to get out of check.");
                 return;
             } else {
-                runCastleCheck(event, tempBoard, king);
+                runCastleCheck(event, board, king);
             }
         } else {
-//        if (!event.getBoard().isGhostBoard && initialCheck) {
-            if (king != null && king.getLocation().equals(event.getPiece().getLocation())) {
-                king.setLocation(event.getPassedLocation());
-            }
-
-            Piece target = tempBoard.getSquare(event.getPassedLocation());
-            tempBoard.setSquare(event.getFrom(), null);
-            tempBoard.setSquare(event.getPassedLocation(), event.getPiece().clone());
+            // Try the move in place, then take it back
+            board.makeMove(board.encodeMove(event.getFrom(), event.getPassedLocation(), null));
+            boolean check = board.isInCheck(king);
+            board.unmakeMove();
 
-            if (target instanceof PassantTarget && event.getPiece() instanceof Pawn)
-                tempBoard.setSquare(((PassantTarget) target).getOwner().getLocation(), null);
-//        }
-
-            if (tempBoard.isInCheck(king)) {
+            if (check) {
                 if (initialCheck) {
                     if (!event.isQuiet())
-                        ChessMasters.controller.setStatus("\nYour king would still be in check with that move. Try a different move.");
+                        session.setStatus("\nYour king would still be in check with that move. Try a different move.");
                 } else if (!event.isQuiet())
-                    ChessMasters.controller.setStatus("\nThat move would put your king in danger! Try a different move.");
+                    session.setStatus("\nThat move would put your king in danger! Try a different move.");
                 event.setCancelled(true);
             }
         }
     }
 
-    @EventHandler
+    @EventHandler(async = true)
     public void move(PostPieceMoveEvent event) {
         if (event.getBoard().isGhostBoard)
             return;
-        boolean check = PlayerMove.inst().getBoard().isInCheck(event.getPiece().getColor().getOpposite());//PlayerMove.inst().getBoard().pieceCreatesCheck(event.getPiece());
-        String status = ChessMasters.controller.getStatus() == null ? "" : ChessMasters.controller.getStatus() + "\n";
+        // The controller asks about this same position at the start of the next turn, so the cache saves it
+        // working everything out twice. This may be running after the game has moved on, hence the copy.
+        GameStatus gameStatus = session.getPositionCache()
+                .getStatus(event.getPosition(), event.getPiece().getColor().getOpposite());
+        boolean check = gameStatus == GameStatus.CHECK || gameStatus == GameStatus.CHECKMATE;
+        String status = session.getStatus() == null ? "" : session.getStatus() + "\n";
         if (check) {
-            ChessMasters.controller.setStatus(status + "CHECK");
+            session.setStatus(status + "CHECK");
         }
-        boolean checkmate = PlayerMove.inst().getBoard().isInCheckmate(event.getPiece().getColor().getOpposite());
+        boolean checkmate = gameStatus == GameStatus.CHECKMATE;
         if (check) {
             if (checkmate) {
-                if (event.getPiece().getColor() == PieceColor.WHITE) {
-                    ChessMasters.increaseWScore(1);
-                } else if (event.getPiece().getColor() == PieceColor.BLACK) {
-                    ChessMasters.increaseBScore(1);
-                }
-                ChessMasters.controller.setStatus(status + "CHECKMATE! " + ChessMasters.getScoreboard());
-                ChessMasters.controller.setGameOver();
+                session.getScoreboard().increase(event.getPiece().getColor(), 1);
+                session.setStatus(status + "CHECKMATE! " + session.getScoreboard());
+                session.setGameOver();
             }
         }
-
-        if (event.getPiece() instanceof Pawn)
-            event.getBoard().setMovesSinceCap(0);
-        else
-            event.getBoard().incrMovesSinceCap();
     }
 
-    @EventHandler
+    @EventHandler(async = true)
     public void capture(PieceCaptureEvent event) {
         Piece target = event.getCaptured();
         Piece attacker = event.getAttacker();
@@ -87,26 +83,25 @@ public class EventListener {
             extra = " by performing an En Passant!";
         }
 
-        String status = ChessMasters.controller.getStatus() == null ? "" : "\n" + ChessMasters.controller.getStatus();
+        String status = session.getStatus() == null ? "" : "\n" + session.getStatus();
         if (!(target instanceof PassantTarget))
-            ChessMasters.controller.setStatus("The " + target.getColor().toString().toLowerCase() + " " + target.getName().toLowerCase() +
+            session.setStatus("The " + target.getColor().toString().toLowerCase() + " " + target.getName().toLowerCase() +
                     " was captured by the " + attacker.getColor().toString().toLowerCase() + " " + attacker.getName().toLowerCase() + extra + status);
-        event.getBoard().setMovesSinceCap(0);
     }
 
-    private void runCastleCheck(PrePieceMoveEvent event, Board tempBoard, King king) {
-        boolean queenside = event.getPassedLocation().getX() < king.getLocation().getX();
+    private void runCastleCheck(PrePieceMoveEvent event, Board board, King king) {
         int destX = event.getPassedLocation().getX();
+        int dx = destX < king.getLocation().getX() ? -1 : 1;
+        int y = king.getLocation().getY();
 
-        while (king.getLocation().getX() != destX) {
-            tempBoard.setSquare(king.getLocation(), null);
-            tempBoard.setSquare(new Location(queenside ? king.getLocation().getX() - 1 : king.getLocation().getX() + 1, king.getLocation().getY()), king);
-            if (tempBoard.isInCheck(king)) {
+        // Every square the king passes over, and the one it lands on, must be safe
+        for (int x = king.getLocation().getX() + dx; x != destX + dx; x += dx) {
+            if (board.isSquareAttacked(Location.of(x, y), king.getColor().getOpposite())) {
                 event.setCancelled(true);
-                if (king.getLocation().getX() == destX)
-                    ChessMasters.controller.setStatus("That move would put your king in check");
+                if (x == destX)
+                    session.setStatus("That move would put your king in check");
                 else
-                    ChessMasters.controller.setStatus("You king would pass over hostile territory if you performed that move.");
+                    session.setStatus("You king would pass over hostile territory if you performed that move.");
                 break;
             }
         }
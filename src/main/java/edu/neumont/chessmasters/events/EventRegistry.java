@@ -2,58 +2,199 @@ package edu.neumont.chessmasters.events;
 
 import edu.neumont.chessmasters.annotations.EventHandler;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+ * Passes events to the methods marked with {@link EventHandler} on registered listeners.
+ * <br/>
+ * All the reflection happens when a listener is registered: each handler is bound to its listener as a
+ * {@link MethodHandle} and filed under the exact event class it takes, in priority order. Calling an event is then a
+ * map lookup and a walk along an array, with no reflection or allocation, which matters because every move the
+ * player tries goes through here. Handlers run as a pipeline, so a high-priority handler can veto a move before the
+ * more expensive checks after it are run.
+ * <br/>
+ * Handlers marked {@link EventHandler#async()} can be left to run in the background with
+ * {@link #callEventAsync(Event)}, so that reporting on a move doesn't hold up the next one. They run on virtual
+ * threads where the JVM has them, and on a small pool of daemon threads otherwise.
+ * <br/>
+ * Each game has a registry of its own (see {@link edu.neumont.chessmasters.models.GameSession}), so games never see
+ * each other's events. Only the threads are shared.
+ */
 public class EventRegistry {
 
-    private static ArrayList<Object> registeredClasses = new ArrayList<>();
+    private static final MethodType HANDLER_TYPE = MethodType.methodType(void.class, Event.class);
+    private static final Handler[]  NO_HANDLERS  = new Handler[0];
+    private static final int        POOL_SIZE    = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
 
-    public static ArrayList<Method> getMethods(Object obj, Event event) {
-        ArrayList<Method> ret = new ArrayList<>();
-        for (Method method : obj.getClass().getMethods()) {
-            EventHandler handler = method.getAnnotation(EventHandler.class);
-            if (handler == null)
-                continue;
+    private static class Handler {
+        final MethodHandle handle;
+        final int          priority;
+        final boolean      ignoreCancelled;
+        final boolean      async;
 
-            Class<? extends Event> eventType = (Class<? extends Event>) method.getParameterTypes()[0];
-            if (eventType.equals(event.getClass()))
-                ret.add(method);
+        Handler(MethodHandle handle, EventHandler annotation) {
+            this.handle = handle;
+            this.priority = annotation.priority();
+            this.ignoreCancelled = annotation.ignoreCancelled();
+            this.async = annotation.async();
         }
+    }
+
+    private static final ExecutorService executor = createExecutor();
+
+    private final ArrayList<Object>                       registeredClasses = new ArrayList<>();
+    // Each array is replaced rather than changed, so events can be called while listeners are being registered
+    private final Map<Class<? extends Event>, Handler[]> handlers          = new ConcurrentHashMap<>();
+    // The last batch of background handlers queued, which the next batch waits on
+    private final Object                                  queueLock         = new Object();
+    private       CompletableFuture<Void>                 pending           = CompletableFuture.completedFuture(null);
 
-        return ret;
+    private static ExecutorService createExecutor() {
+        try {
+            // Only there from Java 21, so it has to be looked up
+            Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtual.invoke(null);
+        } catch (ReflectiveOperationException | SecurityException e) {
+            return Executors.newFixedThreadPool(POOL_SIZE, task -> {
+                Thread thread = new Thread(task, "event-dispatch");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
     }
 
-    public static void registerEvents(Object obj) {
+    /**
+     * Registers every public {@link EventHandler} method on an object. Each must take a single event.
+     *
+     * @param obj The listener
+     */
+    public synchronized void registerEvents(Object obj) {
+        if (registeredClasses.contains(obj))
+            return;
+
         boolean hasEvents = false;
         for (Method method : obj.getClass().getMethods()) {
             EventHandler handler = method.getAnnotation(EventHandler.class);
             if (handler == null)
                 continue;
 
+            Class<?>[] parameters = method.getParameterTypes();
+            if (parameters.length != 1 || !Event.class.isAssignableFrom(parameters[0])) {
+                System.err.println("[ warn ] " + method + " is marked as an event handler, but doesn't take a single event. Ignoring");
+                continue;
+            }
+
+            MethodHandle handle;
+            try {
+                // The listener's class needn't be public
+                method.setAccessible(true);
+                handle = MethodHandles.lookup().unreflect(method).bindTo(obj).asType(HANDLER_TYPE);
+            } catch (IllegalAccessException | SecurityException e) {
+                System.err.println("[ warn ] Could not register " + method + ": " + e.getMessage());
+                continue;
+            }
+            @SuppressWarnings("unchecked")
+            Class<? extends Event> eventType = (Class<? extends Event>) parameters[0];
+            add(eventType, new Handler(handle, handler));
             hasEvents = true;
         }
 
-        if (hasEvents) {
-            if (!registeredClasses.contains(obj))
-                registeredClasses.add(obj);
+        if (hasEvents)
+            registeredClasses.add(obj);
+    }
+
+    private void add(Class<? extends Event> eventType, Handler handler) {
+        Handler[] existing = handlers.getOrDefault(eventType, NO_HANDLERS);
+        Handler[] updated = Arrays.copyOf(existing, existing.length + 1);
+        updated[existing.length] = handler;
+        // Highest priority first. The sort is stable, so equal priorities keep the order they were registered in.
+        Arrays.sort(updated, Comparator.comparingInt((Handler h) -> h.priority).reversed());
+        handlers.put(eventType, updated);
+    }
+
+    /**
+     * Calls an event's handlers, highest priority first. Once a {@link Cancellable} event has been cancelled, the
+     * handlers that ignore cancelled events are skipped.
+     *
+     * @param event The event
+     */
+    public void callEvent(Event event) {
+        Handler[] list = handlers.get(event.getClass());
+        if (list != null)
+            dispatch(event, list, true, true);
+    }
+
+    /**
+     * Calls an event's handlers, leaving the ones marked {@link EventHandler#async()} to run in the background.
+     * The rest are called straight away. The background handlers run in priority order too, but only once those
+     * queued earlier have finished, so events are always handled in the order they happened. Anything they look at
+     * on the board should be copied into the event, as the board will have moved on.
+     *
+     * @param event The event
+     * @return Completes once the background handlers have run, along with any queued before them
+     */
+    public CompletableFuture<Void> callEventAsync(Event event) {
+        Handler[] list = handlers.get(event.getClass());
+        if (list == null)
+            list = NO_HANDLERS;
+        boolean hasAsync = dispatch(event, list, true, false);
+        final Handler[] background = list;
+        synchronized (queueLock) {
+            if (!hasAsync)
+                return pending;
+            // Handlers catch their own errors, so the chain only breaks if the executor itself fails
+            pending = pending.handle((ignored, error) -> null)
+                    .thenRunAsync(() -> dispatch(event, background, false, true), executor);
+            return pending;
+        }
+    }
+
+    /**
+     * Waits for every background handler queued so far.
+     */
+    public void awaitEvents() {
+        CompletableFuture<Void> last;
+        synchronized (queueLock) {
+            last = pending;
         }
+        last.handle((ignored, error) -> null).join();
     }
 
-    public static void callEvents(Event... events) {
-        for (Event event : events) {
-            for (Object obj : registeredClasses) {
-                for (Method method : getMethods(obj, event)) {
-                    try {
-                        method.invoke(obj, event);
-                    } catch (IllegalAccessException | InvocationTargetException e) {
-                        System.err.println("[ err ] Could not call event '" + event.getName() + "'. Please see the following error:");
-                        e.printStackTrace();
-                    }
-                }
+    // Runs the chosen kind of handlers, returning whether any of the others were skipped
+    private static boolean dispatch(Event event, Handler[] list, boolean sync, boolean async) {
+        boolean skipped = false;
+        Cancellable cancellable = event instanceof Cancellable ? (Cancellable) event : null;
+        for (Handler handler : list) {
+            if (handler.async ? !async : !sync) {
+                skipped = true;
+                continue;
+            }
+            if (handler.ignoreCancelled && cancellable != null && cancellable.isCancelled())
+                continue;
+            try {
+                handler.handle.invokeExact(event);
+            } catch (Throwable e) {
+                System.err.println("[ err ] Could not call event '" + event.getName() + "'. Please see the following error:");
+                e.printStackTrace();
             }
         }
+        return skipped;
+    }
+
+    public void callEvents(Event... events) {
+        for (Event event : events)
+            callEvent(event);
     }
 
 }
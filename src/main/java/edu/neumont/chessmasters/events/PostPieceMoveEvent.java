@@ -8,13 +8,10 @@ public class PostPieceMoveEvent extends Event {
 
     private final Piece    piece, secondary;
     private final Location location;
-    private final Board    board;
+    private final Board    board, position;
 
     public PostPieceMoveEvent(Piece piece, Board board) {
-        this.piece = piece;
-        this.secondary = null;
-        this.location = piece.getLocation();
-        this.board = board;
+        this(piece, null, board);
     }
 
     public PostPieceMoveEvent(Piece piece, Piece secondary, Board board) {
@@ -22,6 +19,7 @@ public class PostPieceMoveEvent extends Event {
         this.secondary = secondary;
         this.location = piece.getLocation();
         this.board = board;
+        this.position = new Board(board);
     }
 
     public Piece getPiece() {
@@ -44,4 +42,14 @@ public class PostPieceMoveEvent extends Event {
         return board;
     }
 
+    /**
+     * Gets a copy of the board as it was straight after the move. Handlers running in the background should look at
+     * this rather than the board, which the game will have carried on with.
+     *
+     * @return A ghost copy of the board
+     */
+    public Board getPosition() {
+        return position;
+    }
+
 }
@@ -4,7 +4,7 @@ import edu.neumont.chessmasters.models.Board;
 import edu.neumont.chessmasters.models.Location;
 import edu.neumont.chessmasters.models.pieces.Piece;
 
-public class PrePieceMoveEvent extends Event {
+public class PrePieceMoveEvent extends Event implements Cancellable {
 
     private final Piece    piece;
     private final Board    board;
@@ -81,10 +81,12 @@ public class PrePieceMoveEvent extends Event {
         cancelled = true;
     }
 
+    @Override
     public void setCancelled(boolean cancelled) {
         this.cancelled = cancelled;
     }
 
+    @Override
     public boolean isCancelled() {
         return cancelled;
     }
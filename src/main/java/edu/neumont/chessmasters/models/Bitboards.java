@@ -0,0 +1,139 @@
+package edu.neumont.chessmasters.models;
+
+/**
+ * Helpers for working with bitboards. A bitboard is a 64-bit word where bit n represents square n,
+ * counting from a1 (0) along each rank up to h8 (63). In other words, square = y * 8 + x.
+ */
+public class Bitboards {
+
+    public static final long DARK_SQUARES = 0xAA55AA55AA55AA55L;
+
+    // Ray directions. The first four run towards higher squares, the last four towards lower ones.
+    private static final int[] RAY_DX = {0, 1, 1, -1, 0, -1, -1, 1};
+    private static final int[] RAY_DY = {1, 1, 0, 1, -1, -1, 0, -1};
+
+    // Every square a piece could reach from a square on an empty board, indexed by square
+    private static final long[]   KNIGHT_ATTACKS = new long[64];
+    private static final long[]   KING_ATTACKS   = new long[64];
+    // Indexed [color][square]
+    private static final long[][] PAWN_ATTACKS   = new long[2][64];
+    // Indexed [direction][square], not including the square itself
+    private static final long[][] RAYS           = new long[8][64];
+    // Indexed [from][to]. BETWEEN holds the squares strictly between two squares sharing a rank, file or diagonal,
+    // and LINE the whole line through both of them. Both are empty for squares that don't line up.
+    private static final long[][] BETWEEN        = new long[64][64];
+    private static final long[][] LINE           = new long[64][64];
+
+    static {
+        int[][] knight = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+        for (int square = 0; square < 64; square++) {
+            int x = getX(square), y = getY(square);
+            for (int[] offset : knight)
+                KNIGHT_ATTACKS[square] |= bitIfOnBoard(x + offset[0], y + offset[1]);
+            for (int dir = 0; dir < 8; dir++) {
+                KING_ATTACKS[square] |= bitIfOnBoard(x + RAY_DX[dir], y + RAY_DY[dir]);
+                for (int tx = x + RAY_DX[dir], ty = y + RAY_DY[dir]; tx >= 0 && tx <= 7 && ty >= 0 && ty <= 7; tx += RAY_DX[dir], ty += RAY_DY[dir])
+                    RAYS[dir][square] |= bit(square(tx, ty));
+            }
+            PAWN_ATTACKS[0][square] = bitIfOnBoard(x - 1, y + 1) | bitIfOnBoard(x + 1, y + 1);
+            PAWN_ATTACKS[1][square] = bitIfOnBoard(x - 1, y - 1) | bitIfOnBoard(x + 1, y - 1);
+        }
+
+        for (int from = 0; from < 64; from++) {
+            for (int dir = 0; dir < 8; dir++) {
+                // opposite directions are four apart
+                long line = RAYS[dir][from] | RAYS[(dir + 4) % 8][from] | bit(from);
+                for (long bb = RAYS[dir][from]; bb != 0; bb &= bb - 1) {
+                    int to = first(bb);
+                    BETWEEN[from][to] = RAYS[dir][from] & RAYS[(dir + 4) % 8][to];
+                    LINE[from][to] = line;
+                }
+            }
+        }
+    }
+
+    private static long bitIfOnBoard(int x, int y) {
+        return x >= 0 && x <= 7 && y >= 0 && y <= 7 ? bit(square(x, y)) : 0;
+    }
+
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    /**
+     * Gets the squares a pawn of the given color attacks from the square. Because pawn captures mirror each
+     * other, the pawns of a color attacking a square are those on pawnAttacks(the other color, square).
+     */
+    public static long pawnAttacks(int color, int square) {
+        return PAWN_ATTACKS[color][square];
+    }
+
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    public static long line(int from, int to) {
+        return LINE[from][to];
+    }
+
+    public static long rookAttacks(int square, long occupied) {
+        return rayAttacks(0, square, occupied) | rayAttacks(2, square, occupied)
+                | rayAttacks(4, square, occupied) | rayAttacks(6, square, occupied);
+    }
+
+    public static long bishopAttacks(int square, long occupied) {
+        return rayAttacks(1, square, occupied) | rayAttacks(3, square, occupied)
+                | rayAttacks(5, square, occupied) | rayAttacks(7, square, occupied);
+    }
+
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    // Scans outward from the square and stops at (including) the first occupied square
+    private static long rayAttacks(int dir, int square, long occupied) {
+        long ray = RAYS[dir][square];
+        long blockers = ray & occupied;
+        if (blockers != 0) {
+            int blocker = dir < 4 ? Long.numberOfTrailingZeros(blockers) : 63 - Long.numberOfLeadingZeros(blockers);
+            ray ^= RAYS[dir][blocker];
+        }
+        return ray;
+    }
+
+    public static int square(int x, int y) {
+        return y * 8 + x;
+    }
+
+    public static int getX(int square) {
+        return square & 7;
+    }
+
+    public static int getY(int square) {
+        return square >>> 3;
+    }
+
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    /**
+     * Gets the lowest square set in the given bitboard. Loop over a bitboard with
+     * <code>for (long bb = board; bb != 0; bb &amp;= bb - 1)</code> and call this on each iteration.
+     *
+     * @param board The bitboard
+     * @return The index of the lowest set square, or 64 if the board is empty
+     */
+    public static int first(long board) {
+        return Long.numberOfTrailingZeros(board);
+    }
+
+    public static int count(long board) {
+        return Long.bitCount(board);
+    }
+
+}
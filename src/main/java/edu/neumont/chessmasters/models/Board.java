@@ -1,34 +1,208 @@
 package edu.neumont.chessmasters.models;
 
-import edu.neumont.chessmasters.ChessMasters;
 import edu.neumont.chessmasters.Utils;
-import edu.neumont.chessmasters.events.EventRegistry;
 import edu.neumont.chessmasters.events.PieceCaptureEvent;
 import edu.neumont.chessmasters.events.PostPieceMoveEvent;
 import edu.neumont.chessmasters.models.pieces.*;
 import me.travja.utils.utils.IOUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 
 public class Board {
 
-	// y, x
-	private Piece[][] squares;
+	// Indexed by square, y * 8 + x. See Bitboards.
+	private Piece[] squares;
+	// One occupancy word per color and piece type, indexed [color][type].
+	// Passant targets aren't real pieces, so they get their own words instead.
+	private long[][] pieceBoards;
+	private long[]   colorBoards;
+	private long[]   passantBoards;
+	// Squares of each color's real pieces, in no particular order. pieceIndex maps a square back to its slot
+	// so that pieces can be removed in constant time.
+	private int[][]  pieceLists;
+	private int[]    pieceCounts;
+	private int[]    pieceIndex;
+	private King[]   kings;
+	// Zobrist hash of the pieces alone, updated as they're added and removed. See hash().
+	private long     pieceHash;
+	// Piece-square totals for the evaluation, white's minus black's, and the game phase. See PieceSquareTables.
+	private int      midgameScore, endgameScore, phase;
+
+	public static final int WHITE_KING_SIDE  = 1;
+	public static final int WHITE_QUEEN_SIDE = 2;
+	public static final int BLACK_KING_SIDE  = 4;
+	public static final int BLACK_QUEEN_SIDE = 8;
 	// Half-turns, starting at 0. To get turn number, (counter/2) + 1
 	private int	   counter	   = 0;
 	public  int	   movesSinceCap = 0;
+	// The hash of every position reached, one per half-turn, with the current position last. See getRepetitionCount().
+	private long[] history	   = new long[64];
+	private int	   historyCount  = 0;
 
 	public Piece getSquare(String s) {
-		return getSquare(new Location(s));
+		return getSquare(Location.of(s));
 	}
 
 	public Piece getSquare(Location l) {
-		return squares[l.getY()][l.getX()];
+		return squares[l.getIndex()];
+	}
+
+	public Piece getSquare(int square) {
+		return squares[square];
 	}
 
 	public void setSquare(Location l, Piece p) {
-		squares[l.getY()][l.getX()] = p;
-		if (p != null) p.setLocation(l);
+		int square = l.getIndex();
+		removePiece(square);
+		if (p != null) {
+			addPiece(square, p);
+			p.setLocation(l);
+		}
+	}
+
+	private void addPiece(int square, Piece p) {
+		long bit = Bitboards.bit(square);
+		int color = p.getColor().ordinal();
+		squares[square] = p;
+		if (p instanceof PassantTarget) {
+			passantBoards[color] |= bit;
+		} else {
+			pieceBoards[color][p.getType().ordinal()] |= bit;
+			colorBoards[color] |= bit;
+			pieceHash ^= Zobrist.piece(color, p.getType().ordinal(), square);
+			updateScores(color, p.getType().ordinal(), square, 1);
+			pieceIndex[square] = pieceCounts[color];
+			pieceLists[color][pieceCounts[color]++] = square;
+			if (p instanceof King)
+				kings[color] = (King) p;
+		}
+	}
+
+	private void removePiece(int square) {
+		Piece p = squares[square];
+		if (p == null) return;
+		long bit = ~Bitboards.bit(square);
+		int color = p.getColor().ordinal();
+		squares[square] = null;
+		if (p instanceof PassantTarget) {
+			passantBoards[color] &= bit;
+		} else {
+			pieceBoards[color][p.getType().ordinal()] &= bit;
+			colorBoards[color] &= bit;
+			pieceHash ^= Zobrist.piece(color, p.getType().ordinal(), square);
+			updateScores(color, p.getType().ordinal(), square, -1);
+			// move the last piece in the list into the freed slot
+			int slot = pieceIndex[square];
+			int last = pieceLists[color][--pieceCounts[color]];
+			pieceLists[color][slot] = last;
+			pieceIndex[last] = slot;
+			if (p == kings[color]) {
+				long others = pieceBoards[color][PieceType.KING.ordinal()];
+				kings[color] = others == 0 ? null : (King) squares[Bitboards.first(others)];
+			}
+		}
+	}
+
+	// sign is 1 when a piece arrives and -1 when it leaves
+	private void updateScores(int color, int type, int square, int sign) {
+		int side = color == 0 ? sign : -sign;
+		midgameScore += side * PieceSquareTables.midgame(color, type, square);
+		endgameScore += side * PieceSquareTables.endgame(color, type, square);
+		phase += sign * PieceSquareTables.PHASE_WEIGHTS[type];
+	}
+
+	// White's piece-square total minus black's, for when plenty of pieces are left
+	public int getMidgameScore() {
+		return midgameScore;
+	}
+
+	// White's piece-square total minus black's, for when few pieces are left
+	public int getEndgameScore() {
+		return endgameScore;
+	}
+
+	/**
+	 * Gets how much material is left, weighted by {@link PieceSquareTables#PHASE_WEIGHTS}. This is
+	 * {@link PieceSquareTables#MAX_PHASE} at the start of the game and falls towards 0 as pieces come off, although
+	 * promotions can push it past the maximum.
+	 */
+	public int getPhase() {
+		return phase;
+	}
+
+	public long getBitboard(PieceColor color, PieceType type) {
+		return pieceBoards[color.ordinal()][type.ordinal()];
+	}
+
+	public long getOccupancy(PieceColor color) {
+		return colorBoards[color.ordinal()];
+	}
+
+	public long getOccupancy() {
+		return colorBoards[0] | colorBoards[1];
+	}
+
+	public long getPassantTargets(PieceColor color) {
+		return passantBoards[color.ordinal()];
+	}
+
+	/**
+	 * Gets the 64-bit Zobrist hash of this position, covering the pieces, the side to move, castling rights and
+	 * the en passant square. Equal positions hash equally, so this can stand in for comparing FEN strings.
+	 * <br/>
+	 * The piece part is kept up to date by every setSquare, so movePiece, castle, makeMove and the passant
+	 * handling all update it as they go. The rest is folded in here from a few field reads.
+	 *
+	 * @return The hash
+	 */
+	public long hash() {
+		return hash(Utils.Turns.getColor(this));
+	}
+
+	/**
+	 * Gets the hash of this position with the given side to move. While a move is being played through movePiece,
+	 * the turn counter still belongs to the side that moved, so anything looking at the position from the other
+	 * side's point of view in the meantime, such as the move events, can use this to get the hash it will have.
+	 *
+	 * @param toMove The side to move
+	 * @return The hash
+	 */
+	public long hash(PieceColor toMove) {
+		long hash = pieceHash ^ Zobrist.castling(getCastlingRights());
+		if (toMove == PieceColor.BLACK)
+			hash ^= Zobrist.BLACK_TO_MOVE;
+		// Only the target left by the side that just moved can be captured
+		long passant = passantBoards[toMove.getOpposite().ordinal()];
+		if (passant != 0)
+			hash ^= Zobrist.passant(Bitboards.getX(Bitboards.first(passant)));
+		return hash;
+	}
+
+	/**
+	 * Works out which castles are still available, from whether each king and rook has left its starting square.
+	 * Squares between them and attacks on the king's path aren't considered.
+	 *
+	 * @return A combination of {@link #WHITE_KING_SIDE}, {@link #WHITE_QUEEN_SIDE}, {@link #BLACK_KING_SIDE}
+	 * and {@link #BLACK_QUEEN_SIDE}
+	 */
+	public int getCastlingRights() {
+		int rights = 0;
+		if (isUnmoved(4, PieceColor.WHITE, PieceType.KING)) {
+			if (isUnmoved(7, PieceColor.WHITE, PieceType.ROOK)) rights |= WHITE_KING_SIDE;
+			if (isUnmoved(0, PieceColor.WHITE, PieceType.ROOK)) rights |= WHITE_QUEEN_SIDE;
+		}
+		if (isUnmoved(60, PieceColor.BLACK, PieceType.KING)) {
+			if (isUnmoved(63, PieceColor.BLACK, PieceType.ROOK)) rights |= BLACK_KING_SIDE;
+			if (isUnmoved(56, PieceColor.BLACK, PieceType.ROOK)) rights |= BLACK_QUEEN_SIDE;
+		}
+		return rights;
+	}
+
+	private boolean isUnmoved(int square, PieceColor color, PieceType type) {
+		Piece p = squares[square];
+		return p != null && p.getType() == type && p.getColor() == color && p.getNumMoves() == 0;
 	}
 
 	public int getCounter() {
@@ -41,6 +215,7 @@ public class Board {
 
 	public void incrCounter() {
 		counter++;
+		recordPosition();
 	}
 
 	public int getMovesSinceCap() {
@@ -55,6 +230,42 @@ public class Board {
 		movesSinceCap++;
 	}
 
+	private void recordPosition() {
+		if (historyCount == history.length)
+			history = Arrays.copyOf(history, historyCount * 2);
+		history[historyCount++] = hash();
+	}
+
+	/**
+	 * Counts how many times the current position has been reached, including now. Positions only count as the
+	 * same if the same side is to move with the same castling and en passant options, as {@link #hash()} covers both.
+	 * <br/>
+	 * A capture or pawn move can never be undone, so only the positions since the last one (as counted by the
+	 * capture clock) are checked, and only every other one of those, as the side to move has to match too.
+	 *
+	 * @return The number of occurrences, at least 1
+	 */
+	public int getRepetitionCount() {
+		if (historyCount == 0) return 1;
+		long current = history[historyCount - 1];
+		int oldest = Math.max(0, historyCount - 1 - movesSinceCap);
+		int count = 1;
+		for (int i = historyCount - 3; i >= oldest; i -= 2)
+			if (history[i] == current)
+				count++;
+		return count;
+	}
+
+	// A player may claim a draw once the same position has come up three times
+	public boolean isThreefoldRepetition() {
+		return getRepetitionCount() >= 3;
+	}
+
+	// After five times the game is drawn whether anyone claims it or not
+	public boolean isFivefoldRepetition() {
+		return getRepetitionCount() >= 5;
+	}
+
 	private ArrayList<Move> moves;
 
 	public ArrayList<Move> getMoves() { return moves; }
@@ -68,17 +279,43 @@ public class Board {
 	// Indicates whether to fire events. Ghost boards are used in determining checkmate,
 	// so we don't want to issue alerts of captures made on them.
 	public final boolean isGhostBoard;
+	// The game this board is being played in, if any. Copies don't belong to one. See GameSession.
+	private volatile GameSession session;
+
+	public GameSession getSession() {
+		return session;
+	}
+
+	void setSession(GameSession session) {
+		this.session = session;
+	}
+
+	// Leaves a message for the player, if there's a game to leave it with
+	private void report(String status) {
+		GameSession session = this.session;
+		if (session != null)
+			session.setStatus(status);
+	}
 
 	public King getKing(PieceColor color) {
-		for (int y = 0; y < 8; y++) {
-			for (int x = 0; x < 8; x++) {
-				Piece piece = getSquare(new Location(x, y));
-				if (piece != null && piece instanceof King && piece.getColor() == color)
-					return (King) piece;
-			}
-		}
+		return kings[color.ordinal()];
+	}
+
+	// The number of real pieces (so not passant targets) the color has on the board
+	public int getPieceCount(PieceColor color) {
+		return pieceCounts[color.ordinal()];
+	}
 
-		return null;
+	/**
+	 * Gets one of the color's pieces without building a list. Loop from 0 up to {@link #getPieceCount(PieceColor)}
+	 * to visit every piece. Indices are only stable until the board changes.
+	 *
+	 * @param color The color of the piece
+	 * @param index The index, from 0 up to {@link #getPieceCount(PieceColor)}
+	 * @return The piece
+	 */
+	public Piece getPiece(PieceColor color, int index) {
+		return squares[pieceLists[color.ordinal()][index]];
 	}
 
 	public ArrayList<Piece> getAllPieces() {
@@ -88,15 +325,14 @@ public class Board {
 		return pieces;
 	}
 
+	// Includes any passant targets belonging to the color
 	public ArrayList<Piece> getAllPieces(PieceColor color) {
-		ArrayList<Piece> pieces = new ArrayList<>();
-		for (int y = 0; y < 8; y++) {
-			for (int x = 0; x < 8; x++) {
-				Piece piece = getSquare(new Location(x, y));
-				if (piece != null && piece.getColor() == color)
-					pieces.add(piece);
-			}
-		}
+		int c = color.ordinal();
+		ArrayList<Piece> pieces = new ArrayList<>(pieceCounts[c] + 1);
+		for (int i = 0; i < pieceCounts[c]; i++)
+			pieces.add(squares[pieceLists[c][i]]);
+		for (long bb = passantBoards[c]; bb != 0; bb &= bb - 1)
+			pieces.add(squares[Bitboards.first(bb)]);
 		return pieces;
 	}
 
@@ -107,18 +343,19 @@ public class Board {
 	}
 
 	public Board(Board original, boolean isGhost) {
-		this.squares = new Piece[8][8];
+		clearBoard();
 		this.moves = (ArrayList<Move>) original.getMoves().clone();
 		this.isGhostBoard = isGhost;
+		this.counter = original.counter;
+		this.movesSinceCap = original.movesSinceCap;
+		this.history = Arrays.copyOf(original.history, original.history.length);
+		this.historyCount = original.historyCount;
 
 		// copy pieces over
-		for (int rank = 0; rank < 8; rank++) {
-			for (int file = 0; file < 8; file++) {
-				Location l = new Location(file, rank);
-				Piece p = original.getSquare(l);
-				if (p != null)
-					this.setSquare(l, p.clone());
-			}
+		long occupied = original.getOccupancy() | original.passantBoards[0] | original.passantBoards[1];
+		for (long bb = occupied; bb != 0; bb &= bb - 1) {
+			int square = Bitboards.first(bb);
+			this.setSquare(Location.of(square), original.squares[square].clone());
 		}
 	}
 
@@ -129,7 +366,7 @@ public class Board {
 
 	// create board from FEN
 	public Board(String fen) {
-		this.squares = new Piece[8][8];
+		clearBoard();
 		moves = new ArrayList<Move>();
 		this.isGhostBoard = false;
 
@@ -156,7 +393,7 @@ public class Board {
 				try {
 					Piece piece = Piece.fromFEN(p.toString());
 					PieceColor color = piece.getColor();
-					setSquare(new Location(file, rank), piece);
+					setSquare(Location.of(file, rank), piece);
 
 					if (piece instanceof Rook || piece instanceof King) {
 						if (color == PieceColor.WHITE) {
@@ -177,7 +414,7 @@ public class Board {
 		}
 
 		if (!passant.equals("-")) {
-			Location loc = new Location(passant);
+			Location loc = Location.of(passant);
 			Piece owner = getSquare(loc.add(0, turn == PieceColor.WHITE ? -1 : 1));
 			if (owner == null || owner.getColor() != turn.getOpposite() || !(owner instanceof Pawn))
 				System.err.println("[ warn ] Could not add a passant target to " + passant + " as there is no corresponding pawn in front of it.");
@@ -198,6 +435,7 @@ public class Board {
 		} catch (NumberFormatException e) {
 			System.err.println("[ warn ] Could not set the move counter. '" + counter + "' is not a number. 1 will be used as default.");
 		}
+		recordPosition();
 	}
 
 	public String toFEN() {
@@ -205,7 +443,7 @@ public class Board {
 		for (int rank = 7; rank >= 0; rank--) { //Build the layout
 			int empty = 0;
 			for (int file = 0; file < 8; file++) {
-				Piece p = getSquare(new Location(file, rank));
+				Piece p = squares[Bitboards.square(file, rank)];
 				if (p == null || p instanceof PassantTarget) {
 					empty++;
 					continue;
@@ -233,8 +471,8 @@ public class Board {
 			King king = getKing(color);
 			if (king.getNumMoves() > 0)
 				continue;
-			Piece rank0 = getSquare(new Location(0, king.getLocation().getY()));
-			Piece rank7 = getSquare(new Location(7, king.getLocation().getY()));
+			Piece rank0 = getSquare(Location.of(0, king.getLocation().getY()));
+			Piece rank7 = getSquare(Location.of(7, king.getLocation().getY()));
 			if (rank7 instanceof Rook) {
 				if (rank7.getNumMoves() == 0) {
 					ret.append(color == PieceColor.WHITE ? "K" : "k");
@@ -253,11 +491,9 @@ public class Board {
 		//Construct passant target string
 		boolean passantSet = false;
 		ret.append(" ");
-		for (Piece piece : getAllPieces()) {
-			if (piece instanceof PassantTarget) {
-				ret.append(piece.getLocation());
-				passantSet = true;
-			}
+		for (long bb = passantBoards[0] | passantBoards[1]; bb != 0; bb &= bb - 1) {
+			ret.append(squares[Bitboards.first(bb)].getLocation());
+			passantSet = true;
 		}
 		if (!passantSet) ret.append("-");
 
@@ -271,11 +507,24 @@ public class Board {
 	}
 
 	public void clearBoard() {
-		this.squares = new Piece[8][8];
+		this.squares = new Piece[64];
+		this.pieceBoards = new long[2][PieceType.values().length];
+		this.colorBoards = new long[2];
+		this.passantBoards = new long[2];
+		this.pieceLists = new int[2][64];
+		this.pieceCounts = new int[2];
+		this.pieceIndex = new int[64];
+		this.kings = new King[2];
+		this.pieceHash = 0;
+		this.midgameScore = 0;
+		this.endgameScore = 0;
+		this.phase = 0;
+		this.historyCount = 0;
 	}
 
 	public void clearPassant(PieceColor color) {
-		getAllPieces(color).stream().filter(piece -> piece instanceof PassantTarget).forEach(piece -> setSquare(piece.getLocation(), null));
+		for (long bb = passantBoards[color.ordinal()]; bb != 0; bb &= bb - 1)
+			removePiece(Bitboards.first(bb));
 	}
 
 	public boolean placePiece(Piece p, Location l) {
@@ -287,11 +536,7 @@ public class Board {
 	// Checks whether the exclusive range of squares is empty
 	// (all squares between a and b, not including a and b)
 	public boolean pathIsEmpty(Location a, Location b) {
-		Location[] path = Location.getExclusiveRange(a, b);
-		for (Location l : path)
-			if (getSquare(l) != null)
-				return false;
-		return true;
+		return (Bitboards.between(a.getIndex(), b.getIndex()) & getOccupancy()) == 0;
 	}
 
 	public boolean validateMove(Piece p, Location dest) {
@@ -304,9 +549,9 @@ public class Board {
 		if (victim != null) {
 			if (!p.validateCapture(dest) && !isGhostBoard) {
 				if (victim instanceof Rook && p instanceof King && p.getColor() == victim.getColor())
-					ChessMasters.controller.setStatus("That is an invalid castle.");
+					report("That is an invalid castle.");
 				else
-					ChessMasters.controller.setStatus("You can't capture that piece.");
+					report("You can't capture that piece.");
 				return false;
 			}
 			// if we are, ensure that we're capturing an opponent
@@ -333,67 +578,322 @@ public class Board {
 		}
 	}
 
-	// Returns whether the given color is in checkmate.
-	public boolean isInCheckmate(PieceColor color) {
-		return isInCheckmate(getKing(color));
+	/**
+	 * Generates every legal move for the given color, including castles (encoded as the king moving onto its
+	 * rook), en passant captures and one move per possible promotion.
+	 *
+	 * @param color The color to generate moves for
+	 * @return The legal moves
+	 */
+	public ArrayList<Move> generateLegalMoves(PieceColor color) {
+		return decodeMoves(color, getOccupancy(color));
 	}
 
-	public boolean isInCheckmate(King king) {
-		if (!isInCheck(king)) return false;
-		for (int rank_from = 0; rank_from < 8; rank_from++) {
-			for (int file_from = 0; file_from < 8; file_from++) {
+	/**
+	 * Generates the legal moves for a single piece on this board.
+	 *
+	 * @param p The piece to generate moves for
+	 * @return The legal moves, or an empty list if the piece isn't on this board
+	 */
+	public ArrayList<Move> generateLegalMoves(Piece p) {
+		if (p == null || p.getLocation() == null || getSquare(p.getLocation()) != p)
+			return new ArrayList<>();
+		return decodeMoves(p.getColor(), Bitboards.bit(p.getLocation().getIndex()));
+	}
 
-				Location from = new Location(file_from, rank_from);
-				Piece p = getSquare(from);
+	private ArrayList<Move> decodeMoves(PieceColor color, long from) {
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int count = generateLegalMoves(color, from, moves);
+		ArrayList<Move> ret = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+			ret.add(Move.decode(moves[i]));
+		return ret;
+	}
 
-				if (p == null || p.getColor() != king.getColor()) continue;
+	/**
+	 * Generates the legal moves for the given color into a buffer, packed as described in {@link Move}.
+	 *
+	 * @param color The color to generate moves for
+	 * @param moves The buffer to write to, at least {@link MoveGenerator#MAX_MOVES} long
+	 * @return The number of moves written
+	 */
+	public int generateLegalMoves(PieceColor color, int[] moves) {
+		return generateLegalMoves(color, getOccupancy(color), moves);
+	}
 
-				for (int rank_to = 0; rank_to < 8; rank_to++) {
-					for (int file_to = 0; file_to < 8; file_to++) {
+	private int generateLegalMoves(PieceColor color, long from, int[] moves) {
+		int pseudo = MoveGenerator.generate(this, color, from, moves, 0);
+		int count = 0;
+		for (int i = 0; i < pseudo; i++) {
+			if (isLegal(moves[i], color))
+				moves[count++] = moves[i];
+		}
+		return count;
+	}
 
-						Location to = new Location(file_to, rank_to);
-						if (from.equals(to)) continue;
+	private boolean hasLegalMove(PieceColor color) {
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int count = MoveGenerator.generate(this, color, getOccupancy(color), moves, 0);
+		for (int i = 0; i < count; i++) {
+			if (isLegal(moves[i], color))
+				return true;
+		}
+		return false;
+	}
 
-						Board b = new Board(this, true);
-						try {
-							if (b.movePiece(from, to) && !b.isInCheck(king.getColor()))
-								// we found a move that's valid and removes us from check
-								return false; // so we're not in checkmate
-						} catch (UnsupportedOperationException uoe) {
-							continue;
-						}
-					}
-				}
-			}
+	// Whether a pseudo-legal move leaves the mover's king safe
+	private boolean isLegal(int move, PieceColor color) {
+		makeMove(move);
+		long king = getBitboard(color, PieceType.KING);
+		boolean legal = king == 0 || !isSquareAttacked(Bitboards.first(king), color.getOpposite());
+		unmakeMove();
+		return legal;
+	}
+
+	// Scratch space for isPseudoLegal, so checking a move doesn't allocate
+	private final int[] probeMoves = new int[MoveGenerator.MAX_MOVES];
+
+	/**
+	 * Checks whether a packed move could be played by the side to move here, apart from maybe leaving its king in
+	 * check. Useful for moves remembered from other positions, like a search's hash and killer moves.
+	 *
+	 * @param move A move packed as described in {@link Move}
+	 * @return Whether the move is one the move generator would produce
+	 */
+	public boolean isPseudoLegal(int move) {
+		int from = Move.getFrom(move);
+		Piece p = squares[from];
+		PieceColor color = Utils.Turns.getColor(this);
+		if (p == null || p.getType() == null || p.getColor() != color)
+			return false;
+		int count = MoveGenerator.generate(this, color, Bitboards.bit(from), probeMoves, 0);
+		for (int i = 0; i < count; i++)
+			if (probeMoves[i] == move)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Packs a move on this board into the form used by {@link #makeMove(int)}, working out the flags from the
+	 * pieces involved. The move isn't validated.
+	 *
+	 * @param from      The source square
+	 * @param to        The destination square, or the rook's square for a castle
+	 * @param promotion What a promoting pawn becomes, or null
+	 * @return The packed move
+	 */
+	public int encodeMove(Location from, Location to, PieceType promotion) {
+		int source = from.getIndex();
+		int dest = to.getIndex();
+		Piece p = squares[source];
+		Piece target = squares[dest];
+		int flags = 0;
+		if (target != null && !(target instanceof PassantTarget)) {
+			if (target.getColor() != p.getColor())
+				flags |= Move.CAPTURE;
+			else if (p instanceof King && target instanceof Rook)
+				flags |= Move.CASTLE;
 		}
-		return true;
+		if (p instanceof Pawn) {
+			if (target instanceof PassantTarget && target.getColor() != p.getColor() && from.getX() != to.getX())
+				flags |= Move.CAPTURE | Move.EN_PASSANT;
+			else if (Math.abs(dest - source) == 16)
+				flags |= Move.DOUBLE_PUSH;
+		}
+		return promotion == null ? Move.encode(source, dest, flags) : Move.encode(source, dest, promotion, flags);
 	}
 
-	public boolean checkStalemate(PieceColor color) {
-		return getAllPieces(color).stream().noneMatch(this::canPieceMove);
+	// Everything makeMove changes that can't be worked out again from the move itself
+	private static class Undo {
+		int   move;
+		Piece moved, captured;
+		// Passant targets expire as soon as anyone moves, so both colors' targets are kept here
+		Piece whitePassant, blackPassant;
+		int   movesSinceCap;
 	}
 
-	public boolean canPieceMove(Piece p) {
-		if (p == null) return false;
-		Location from = p.getLocation();
+	private Undo[] undoStack = new Undo[0];
+	private int    undoCount = 0;
 
-		for (int rank_to = 0; rank_to < 8; rank_to++) {
-			for (int file_to = 0; file_to < 8; file_to++) {
+	/**
+	 * Plays a move in place, without validating it, firing events or recording it in the history.
+	 * The half-turn counter and capture clock are updated. Undo it with {@link #unmakeMove()}.
+	 *
+	 * @param move A move packed as described in {@link Move}, usually from {@link #generateLegalMoves(PieceColor, int[])}
+	 */
+	public void makeMove(int move) {
+		if (undoCount == undoStack.length) {
+			undoStack = Arrays.copyOf(undoStack, Math.max(16, undoCount * 2));
+			for (int i = undoCount; i < undoStack.length; i++)
+				undoStack[i] = new Undo();
+		}
+		Undo undo = undoStack[undoCount++];
+
+		int from = Move.getFrom(move), to = Move.getTo(move);
+		Piece p = squares[from];
+		undo.move = move;
+		undo.moved = p;
+		undo.captured = null;
+		undo.movesSinceCap = movesSinceCap;
+		undo.whitePassant = passantBoards[0] == 0 ? null : squares[Bitboards.first(passantBoards[0])];
+		undo.blackPassant = passantBoards[1] == 0 ? null : squares[Bitboards.first(passantBoards[1])];
+		clearPassant(PieceColor.WHITE);
+		clearPassant(PieceColor.BLACK);
 
-				Location to = new Location(file_to, rank_to);
-				if (from.equals(to)) continue;
+		counter++;
+		if (Move.hasFlag(move, Move.CASTLE)) {
+			Piece rook = squares[to];
+			boolean kingSide = to > from;
+			removePiece(from);
+			removePiece(to);
+			setSquare(kingSide ? from + 2 : from - 2, p);
+			setSquare(kingSide ? from + 1 : from - 1, rook);
+			p.setNumMoves(p.getNumMoves() + 1);
+			rook.setNumMoves(rook.getNumMoves() + 1);
+			movesSinceCap++;
+			recordPosition();
+			return;
+		}
 
-				Board b = new Board(this, true);
-				try {
-					if (b.movePiece(from, to) && !b.isInCheck(p.getColor()))
-						// we found a move that's valid and removes us from check
-						return true; // so we're not in checkmate
-				} catch (UnsupportedOperationException uoe) {
-					continue;
-				}
-			}
+		int captureSquare = captureSquare(move, p.getColor());
+		undo.captured = squares[captureSquare];
+		removePiece(captureSquare);
+		removePiece(from);
+
+		p.setNumMoves(p.getNumMoves() + 1);
+		PieceType promotion = Move.getPromotion(move);
+		if (promotion != null) {
+			Piece promoted = promotion.create(p.getColor());
+			promoted.setNumMoves(p.getNumMoves());
+			setSquare(to, promoted);
+		} else {
+			setSquare(to, p);
 		}
-		return false;
+
+		if (Move.hasFlag(move, Move.DOUBLE_PUSH)) {
+			// Only mark the skipped square if an enemy pawn is actually in a position to capture on it
+			long enemyPawns = getBitboard(p.getColor().getOpposite(), PieceType.PAWN);
+			int x = Bitboards.getX(to);
+			if ((x > 0 && (enemyPawns & Bitboards.bit(to - 1)) != 0) || (x < 7 && (enemyPawns & Bitboards.bit(to + 1)) != 0))
+				setSquare((from + to) / 2, ((Pawn) p).getPassantTarget());
+		}
+
+		movesSinceCap = (p instanceof Pawn || undo.captured != null) ? 0 : movesSinceCap + 1;
+		recordPosition();
+	}
+
+	/**
+	 * Takes back the last move played with {@link #makeMove(int)}, restoring the position exactly.
+	 */
+	public void unmakeMove() {
+		Undo undo = undoStack[--undoCount];
+		int move = undo.move;
+		int from = Move.getFrom(move), to = Move.getTo(move);
+		Piece p = undo.moved;
+
+		counter--;
+		historyCount--;
+		movesSinceCap = undo.movesSinceCap;
+		p.setNumMoves(p.getNumMoves() - 1);
+
+		if (Move.hasFlag(move, Move.CASTLE)) {
+			boolean kingSide = to > from;
+			Piece rook = squares[kingSide ? from + 1 : from - 1];
+			removePiece(kingSide ? from + 2 : from - 2);
+			removePiece(kingSide ? from + 1 : from - 1);
+			setSquare(from, p);
+			setSquare(to, rook);
+			rook.setNumMoves(rook.getNumMoves() - 1);
+		} else {
+			if (Move.hasFlag(move, Move.DOUBLE_PUSH))
+				removePiece((from + to) / 2);
+			removePiece(to);
+			setSquare(from, p);
+			if (undo.captured != null)
+				setSquare(captureSquare(move, p.getColor()), undo.captured);
+		}
+
+		if (undo.whitePassant != null)
+			setSquare(undo.whitePassant.getLocation(), undo.whitePassant);
+		if (undo.blackPassant != null)
+			setSquare(undo.blackPassant.getLocation(), undo.blackPassant);
+	}
+
+	/**
+	 * Counts the positions reachable from this one in exactly the given number of half-turns, playing every legal
+	 * move with {@link #makeMove(int)}. The totals for well-known positions are published, so comparing against them
+	 * is the quickest way to find a bug in move generation. The board is left as it was.
+	 *
+	 * @param depth The number of half-turns to play
+	 * @return The number of leaf positions
+	 */
+	public long perft(int depth) {
+		if (depth <= 0) return 1;
+		return perft(depth, new int[depth][MoveGenerator.MAX_MOVES]);
+	}
+
+	// Each ply gets its own move buffer, so nothing is allocated once we start
+	private long perft(int depth, int[][] buffers) {
+		int[] moves = buffers[depth - 1];
+		int count = generateLegalMoves(Utils.Turns.getColor(this), moves);
+		// Every legal move leads to exactly one leaf, so there's no need to play them
+		if (depth == 1) return count;
+		long nodes = 0;
+		for (int i = 0; i < count; i++) {
+			makeMove(moves[i]);
+			nodes += perft(depth - 1, buffers);
+			unmakeMove();
+		}
+		return nodes;
+	}
+
+	/**
+	 * Breaks {@link #perft(int)} down by the first move played, which narrows down where two move generators disagree.
+	 *
+	 * @param depth The number of half-turns to play, including the first move
+	 * @return The leaf count under each legal move, in generation order
+	 */
+	public LinkedHashMap<Move, Long> divide(int depth) {
+		LinkedHashMap<Move, Long> out = new LinkedHashMap<>();
+		if (depth <= 0) return out;
+		int[][] buffers = new int[depth][MoveGenerator.MAX_MOVES];
+		int[] moves = buffers[depth - 1];
+		int count = generateLegalMoves(Utils.Turns.getColor(this), moves);
+		for (int i = 0; i < count; i++) {
+			makeMove(moves[i]);
+			out.put(Move.decode(moves[i]), depth == 1 ? 1 : perft(depth - 1, buffers));
+			unmakeMove();
+		}
+		return out;
+	}
+
+	// En passant captures take the pawn behind the destination square
+	private int captureSquare(int move, PieceColor mover) {
+		int to = Move.getTo(move);
+		if (!Move.hasFlag(move, Move.EN_PASSANT))
+			return to;
+		return mover == PieceColor.WHITE ? to - 8 : to + 8;
+	}
+
+	private void setSquare(int square, Piece p) {
+		setSquare(Location.of(square), p);
+	}
+
+	// Returns whether the given color is in checkmate.
+	public boolean isInCheckmate(PieceColor color) {
+		return isInCheckmate(getKing(color));
+	}
+
+	public boolean isInCheckmate(King king) {
+		return isInCheck(king) && !hasLegalMove(king.getColor());
+	}
+
+	public boolean checkStalemate(PieceColor color) {
+		return !isInCheck(color) && !hasLegalMove(color);
+	}
+
+	public boolean canPieceMove(Piece p) {
+		return !generateLegalMoves(p).isEmpty();
 	}
 
 	public boolean contains(ArrayList<Piece> arr, Class<? extends Piece> type) {
@@ -401,8 +901,8 @@ public class Board {
 	}
 
 	public boolean isDeadPosition() {
-		ArrayList<Piece> all = getAllPieces();
-		if (all.size() > 4) return false;
+		int all = Bitboards.count(getOccupancy());
+		if (all > 4) return false;
 
 		//Possible combinations are
 		//K v k
@@ -410,45 +910,53 @@ public class Board {
 		//K v k b
 		//K B v k b
 
-		if (all.size() == 2 // K v k
-				|| (contains(all, Knight.class) && all.size() == 3)) return true; // K v k n OR K N vs k
-		else if (contains(all, Bishop.class)) {
-			if (all.size() == 3) return true; // K v k b OR K B v k
-			else if (all.size() == 4) {
-				ArrayList<Piece> white = getAllPieces(PieceColor.WHITE);
-				ArrayList<Piece> black = getAllPieces(PieceColor.BLACK);
-				if (white.size() == 3 || black.size() == 3) return false;
-
-				Bishop wB = white.stream().filter(p -> p instanceof Bishop).findFirst().map(p -> (Bishop) p).orElse(null);
-				Bishop bb = black.stream().filter(p -> p instanceof Bishop).findFirst().map(p -> (Bishop) p).orElse(null);
-				if (wB == null || bb == null)
+		long knights = getBitboard(PieceColor.WHITE, PieceType.KNIGHT) | getBitboard(PieceColor.BLACK, PieceType.KNIGHT);
+		long wB = getBitboard(PieceColor.WHITE, PieceType.BISHOP);
+		long bB = getBitboard(PieceColor.BLACK, PieceType.BISHOP);
+
+		if (all == 2 // K v k
+				|| (knights != 0 && all == 3)) return true; // K v k n OR K N vs k
+		else if ((wB | bB) != 0) {
+			if (all == 3) return true; // K v k b OR K B v k
+			else if (all == 4) {
+				if (Bitboards.count(getOccupancy(PieceColor.WHITE)) == 3 || Bitboards.count(getOccupancy(PieceColor.BLACK)) == 3)
+					return false;
+				if (wB == 0 || bB == 0)
 					return false; //In this case, we have king and something vs king and bishop. In this case, checkmate is still potentially possible.
 
-				PieceColor wBColor = wB.getLocation().getX() % 2 == 0 ? PieceColor.BLACK : PieceColor.WHITE;
-				if (wB.getLocation().getY() % 2 == 1) wBColor = wBColor.getOpposite();
-
-				PieceColor bbColor = bb.getLocation().getX() % 2 == 0 ? PieceColor.BLACK : PieceColor.WHITE;
-				if (bb.getLocation().getY() % 2 == 1) bbColor = bbColor.getOpposite();
-
-				return wBColor == bbColor;
+				// Both bishops on the same square color
+				return ((wB & Bitboards.DARK_SQUARES) == 0) == ((bB & Bitboards.DARK_SQUARES) == 0);
 			}
 		}
 		return false;
 	}
 
 	public boolean movePiece(String from, String to) {
-		return movePiece(new Location(from), new Location(to));
+		return movePiece(Location.of(from), Location.of(to));
 	}
 
 	public boolean movePiece(Move move) {
-		return movePiece(move.from, move.to);
+		return movePiece(move.from, move.to, move.promotion);
 	}
 
 	public boolean movePiece(Location from, Location to) {
+		return movePiece(from, to, null);
+	}
+
+	/**
+	 * Moves a piece, firing events if this board belongs to a game and isn't a ghost board. Handlers of the events
+	 * after the move may still be running in the background when this returns; see {@link GameSession#awaitEvents()}.
+	 *
+	 * @param from      The source square
+	 * @param to        The destination square
+	 * @param promotion What a pawn reaching the last rank becomes. If null, the player is asked.
+	 * @return Whether the move was made
+	 */
+	public boolean movePiece(Location from, Location to, PieceType promotion) {
 		Piece p = getSquare(from);
 		Piece target = getSquare(to);
 		if (p == null) {
-			ChessMasters.controller.setStatus("The source square (" + from.toString() + ") is empty");
+			report("The source square (" + from.toString() + ") is empty");
 			return false;
 		}
 		if (!validateMove(p, to)) return false;
@@ -456,12 +964,14 @@ public class Board {
 			boolean castled = castle((King) p, (Rook) target);
 
 			if (castled) {
-				ChessMasters.controller.setStatus(p.getColor().name() + " performed a " + (target.getLocation().getX() < p.getLocation().getX() ? "king-side" : "queen-side") + " castle.");
+				report(p.getColor().name() + " performed a " + (target.getLocation().getX() < p.getLocation().getX() ? "king-side" : "queen-side") + " castle.");
+				movesSinceCap++;
 			}
 
-			if (!this.isGhostBoard) {
+			GameSession session = this.session;
+			if (!this.isGhostBoard && session != null) {
 				PostPieceMoveEvent post = new PostPieceMoveEvent(p, target, this);
-				EventRegistry.callEvents(post);
+				session.getEvents().callEventAsync(post);
 			}
 
 			return castled;
@@ -470,7 +980,7 @@ public class Board {
 		} else {
 			Piece victim = getSquare(to);
 			PieceCaptureEvent capture = new PieceCaptureEvent(p, victim, this); //Fire our capture event when a piece is captured.
-			if (!p.move(to, this.isGhostBoard)) return false;
+			if (!p.move(to, this, this.isGhostBoard)) return false;
 			if (p instanceof Pawn) checkPassant((Pawn) p, from);
 			setSquare(to, p);
 			setSquare(from, null);
@@ -482,55 +992,30 @@ public class Board {
 					setSquare(((PassantTarget) victim).getOwner().getLocation(), null);
 				}
 			}
+			// Kept here rather than by the event handlers, so the clock is right as soon as the move is made.
+			// Stepping onto a passant target only takes something if a pawn does it.
+			boolean captured = victim != null && (!(victim instanceof PassantTarget) || passant);
+			movesSinceCap = p instanceof Pawn || captured ? 0 : movesSinceCap + 1;
 
 			setSquare(to, p);
 			setSquare(from, null);
 
-			if (!isGhostBoard && p instanceof Pawn && ((Pawn) p).shouldPromote()) { // Promote pawn to queen.
-				String choiceInput = "";
-				boolean validInput = false;
-				do {
-					choiceInput = IOUtils.promptForString("What would you like to promote your piece to (Queen, Knight, Rook, or Bishop)?: ").toLowerCase();
-
-					choiceInput.toLowerCase();
-					switch(choiceInput) {
-						case "queen":
-						case "q":
-							p = new Queen(p.getColor());
-							setSquare(to, p);
-							validInput = true;
-							break;
-						case "knight":
-						case "k":
-							p = new Knight(p.getColor());
-							setSquare(to, p);
-							validInput = true;
-							break;
-						case "rook":
-						case "r":
-							p = new Rook(p.getColor());
-							setSquare(to, p);
-							validInput = true;
-							break;
-						case "bishop":
-						case "b":
-							p = new Bishop(p.getColor());
-							setSquare(to, p);
-							validInput = true;
-							break;
-						default:
-							System.out.println("Unknown piece type: \"" + choiceInput + "\"");
-							break;
-					}
-				} while (!validInput);
+			if (p instanceof Pawn && ((Pawn) p).shouldPromote()) { // Promote pawn.
+				if (promotion == null && !isGhostBoard)
+					promotion = promptForPromotion();
+				if (promotion != null) {
+					p = promotion.create(p.getColor());
+					setSquare(to, p);
+				}
 			}
 
-			if (!this.isGhostBoard) {
+			GameSession session = this.session;
+			if (!this.isGhostBoard && session != null) {
 				PostPieceMoveEvent post = new PostPieceMoveEvent(p, this);
-				EventRegistry.callEvents(post);
+				session.getEvents().callEventAsync(post);
 				if (victim != null) {
 					capture.setPassant(passant);
-					EventRegistry.callEvents(capture);
+					session.getEvents().callEventAsync(capture);
 				}
 			}
 		}
@@ -540,6 +1025,31 @@ public class Board {
 		return true;
 	}
 
+	private PieceType promptForPromotion() {
+		String choiceInput = "";
+		do {
+			choiceInput = IOUtils.promptForString("What would you like to promote your piece to (Queen, Knight, Rook, or Bishop)?: ").toLowerCase();
+
+			switch(choiceInput) {
+				case "queen":
+				case "q":
+					return PieceType.QUEEN;
+				case "knight":
+				case "k":
+					return PieceType.KNIGHT;
+				case "rook":
+				case "r":
+					return PieceType.ROOK;
+				case "bishop":
+				case "b":
+					return PieceType.BISHOP;
+				default:
+					System.out.println("Unknown piece type: \"" + choiceInput + "\"");
+					break;
+			}
+		} while (true);
+	}
+
 	private boolean isCastle(Move move) {
 		Piece piece = getSquare(move.from);
 		Piece target = getSquare(move.to);
@@ -566,10 +1076,10 @@ public class Board {
 		Location kingInit = king.getLocation();
 		Location rookInit = rook.getLocation();
 
-		Location kingDest = new Location(king.getLocation().getX() + dx, king.getLocation().getY());
-		Location rookDest = new Location(kingDest.getX() + (dx < 0 ? 1 : -1), kingDest.getY());
+		Location kingDest = Location.of(king.getLocation().getX() + dx, king.getLocation().getY());
+		Location rookDest = Location.of(kingDest.getX() + (dx < 0 ? 1 : -1), kingDest.getY());
 
-		if (!king.move(kingDest) || !rook.move(rookDest)) {
+		if (!king.move(kingDest, this, isGhostBoard) || !rook.move(rookDest, this, isGhostBoard)) {
 			king.setLocation(kingInit);
 			rook.setLocation(rookInit);
 			return false;
@@ -595,12 +1105,9 @@ public class Board {
 			int dy = location.getY() - dest.getY();
 			boolean passantTarget = false;
 
-			Location intercept = new Location(location.getX(), dest.getY() + (dy / 2));
-			for (Piece piece : getAllPieces(pawn.getColor().getOpposite())) {
-				if (!(piece instanceof Pawn))
-					continue;
-
-				if (piece.validateCapture(intercept)) {
+			Location intercept = Location.of(location.getX(), dest.getY() + (dy / 2));
+			for (long bb = getBitboard(pawn.getColor().getOpposite(), PieceType.PAWN); bb != 0; bb &= bb - 1) {
+				if (squares[Bitboards.first(bb)].validateCapture(intercept)) {
 					passantTarget = true;
 				}
 			}
@@ -608,7 +1115,7 @@ public class Board {
 
 			if (passantTarget) {
 				this.setSquare(intercept, new PassantTarget(pawn));
-				ChessMasters.controller.setStatus("Note: The '*' indicates that an en passant is possible. For more details, type 'help'");
+				report("Note: The '*' indicates that an en passant is possible. For more details, type 'help'");
 			}
 		} else if (pawn.isPassantable()) {
 			pawn.setPassantable(false);
@@ -623,13 +1130,60 @@ public class Board {
 
 	public boolean isInCheck(King king) {
 		if (king == null) return false;
-		for (Piece piece : getAllPieces(king.getColor().getOpposite())) {
-			if (pieceCreatesCheck(piece, king)) {
-				return true;
-			}
-		}
+		return isSquareAttacked(king.getLocation(), king.getColor().getOpposite());
+	}
 
-		return false;
+	public boolean isSquareAttacked(Location l, PieceColor by) {
+		return isSquareAttacked(l.getIndex(), by);
+	}
+
+	/**
+	 * Checks whether any of the given color's pieces attack a square. Rather than asking every enemy piece whether
+	 * it can reach the square, this looks outward from the square itself: a knight's jump away for knights, a
+	 * step away for kings and pawns, and along each ray up to the first piece for sliders.
+	 *
+	 * @param square The square, as y * 8 + x
+	 * @param by     The attacking color
+	 * @return Whether the square is attacked
+	 */
+	public boolean isSquareAttacked(int square, PieceColor by) {
+		int c = by.ordinal();
+		long[] attackers = pieceBoards[c];
+		if ((Bitboards.pawnAttacks(by.getOpposite().ordinal(), square) & attackers[PieceType.PAWN.ordinal()]) != 0
+				|| (Bitboards.knightAttacks(square) & attackers[PieceType.KNIGHT.ordinal()]) != 0
+				|| (Bitboards.kingAttacks(square) & attackers[PieceType.KING.ordinal()]) != 0)
+			return true;
+
+		long occupied = getOccupancy();
+		long queens = attackers[PieceType.QUEEN.ordinal()];
+		return (Bitboards.rookAttacks(square, occupied) & (attackers[PieceType.ROOK.ordinal()] | queens)) != 0
+				|| (Bitboards.bishopAttacks(square, occupied) & (attackers[PieceType.BISHOP.ordinal()] | queens)) != 0;
+	}
+
+	/**
+	 * Gets every square the piece on the given square attacks, whether or not it holds a piece.
+	 *
+	 * @param square The square, as y * 8 + x
+	 * @return The attacked squares, or 0 if the square is empty
+	 */
+	public long getAttacks(int square) {
+		Piece p = squares[square];
+		if (p == null || p.getType() == null) return 0;
+		long occupied = getOccupancy();
+		switch (p.getType()) {
+			case PAWN:
+				return Bitboards.pawnAttacks(p.getColor().ordinal(), square);
+			case KNIGHT:
+				return Bitboards.knightAttacks(square);
+			case BISHOP:
+				return Bitboards.bishopAttacks(square, occupied);
+			case ROOK:
+				return Bitboards.rookAttacks(square, occupied);
+			case QUEEN:
+				return Bitboards.queenAttacks(square, occupied);
+			default:
+				return Bitboards.kingAttacks(square);
+		}
 	}
 
 	public boolean pieceCreatesCheck(Piece piece) {
@@ -638,15 +1192,8 @@ public class Board {
 	}
 
 	public boolean pieceCreatesCheck(Piece piece, King king) {
-		if (!piece.validateCapture(king.getLocation()))
-			return false;
-		try {
-			validateMove(piece, king.getLocation());
-		} catch (UnsupportedOperationException e) {
-			return true;
-		}
-
-		return false;
+		Location from = piece.getLocation(), target = king.getLocation();
+		return (getAttacks(from.getIndex()) & Bitboards.bit(target.getIndex())) != 0;
 	}
 
 	@Override
@@ -691,17 +1238,17 @@ public class Board {
 
 		// Build each row
 		for (int row = 7; row >= 0; row--) {
-			Piece[] rank = squares[side == PieceColor.WHITE ? row : 7 - row];
+			int rank = side == PieceColor.WHITE ? row : 7 - row;
 			sb_out.append(prefix);
 
 			sb_out.append(' ').append(side == PieceColor.WHITE ? row + 1 : 8 - row).append(' ');
 			for (int col = 0; col < 8; col++) {
-				Piece piece = rank[side == PieceColor.WHITE ? col : 7 - col];
+				Piece piece = squares[Bitboards.square(side == PieceColor.WHITE ? col : 7 - col, rank)];
 				sb_out.append(Utils.Drawing.Edges.vertical());
 
 				// highlight last move if applicable
 				if (highlightLast && getMoves().size() > 0) {
-					Location thisSquare = (side == PieceColor.WHITE ? new Location(col, row) : new Location(7 - col, 7 - row));
+					Location thisSquare = (side == PieceColor.WHITE ? Location.of(col, row) : Location.of(7 - col, 7 - row));
 					Move lastMove = getMoves().get(getMoves().size() - 1);
 					if (thisSquare.equals(lastMove.from)) {
 						sb_out.append(Utils.Styles.sourceSquare());
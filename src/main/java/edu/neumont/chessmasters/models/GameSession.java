@@ -0,0 +1,116 @@
+package edu.neumont.chessmasters.models;
+
+import edu.neumont.chessmasters.events.EventListener;
+import edu.neumont.chessmasters.events.EventRegistry;
+
+/**
+ * Everything one game needs that isn't the position itself: the listeners its events go to, where its status
+ * messages are left for the player, the scoreboard and the cache of positions it has seen. The board reports to its
+ * session rather than to anything global, so any number of games can be played at once, each on its own thread.
+ * <br/>
+ * A board made outside of a session, like a ghost board or a copy, has nobody to report to, so it just doesn't.
+ */
+public class GameSession {
+
+    private final    EventRegistry events    = new EventRegistry();
+    private final    PositionCache positions = new PositionCache();
+    private final    Scoreboard    scoreboard;
+    private final    GameSettings  settings;
+    private volatile Board         board;
+    private volatile boolean       gameOver;
+    private          String        status;
+
+    public GameSession() {
+        this(new Board());
+    }
+
+    public GameSession(Board board) {
+        this(board, new GameSettings(new String[0]), new Scoreboard());
+    }
+
+    /**
+     * Starts a game, listening for its events with the usual rules.
+     *
+     * @param board      The board to play on
+     * @param settings   The game's settings
+     * @param scoreboard Where results go, which may be shared with other games
+     */
+    public GameSession(Board board, GameSettings settings, Scoreboard scoreboard) {
+        this.settings = settings;
+        this.scoreboard = scoreboard;
+        events.registerEvents(new EventListener(this));
+        setBoard(board);
+    }
+
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * Moves the game onto another board, like one loaded from a save. The old board stops reporting here.
+     *
+     * @param board The new board
+     */
+    public void setBoard(Board board) {
+        if (this.board != null)
+            this.board.setSession(null);
+        board.setSession(this);
+        this.board = board;
+    }
+
+    public EventRegistry getEvents() {
+        return events;
+    }
+
+    /**
+     * Waits for the background handlers of every event called so far, such as the status report on the last move.
+     */
+    public void awaitEvents() {
+        events.awaitEvents();
+    }
+
+    public PositionCache getPositionCache() {
+        return positions;
+    }
+
+    public Scoreboard getScoreboard() {
+        return scoreboard;
+    }
+
+    public GameSettings getSettings() {
+        return settings;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    public void setGameOver() {
+        this.gameOver = true;
+    }
+
+    public synchronized String getStatus() {
+        return status;
+    }
+
+    public synchronized void setStatus(String status) {
+        this.status = status;
+    }
+
+    public synchronized void setStatusIfEmpty(String status) {
+        if (this.status == null)
+            this.status = status;
+    }
+
+    /**
+     * Gets the status message and clears it, so that it's only shown once.
+     *
+     * @return The status, or null if there isn't one
+     */
+    public synchronized String takeStatus() {
+        String status = this.status;
+        this.status = null;
+        return status;
+    }
+
+}
@@ -1,6 +1,6 @@
 package edu.neumont.chessmasters.models;
 
-//import;
+import edu.neumont.chessmasters.models.pieces.PieceColor;
 
 public class GameSettings {
 	//public enum ColorSelection { ON, OFF, AUTO }
@@ -12,10 +12,31 @@ public class GameSettings {
 	public Boolean unicode = null;
 	public Boolean traceMoves = false;
 	public boolean flip = false;
+	// If above 0, count moves to this depth instead of playing. See Board.perft
+	public int perftDepth = 0;
+	public String perftFen = null;
+	// Which colors the computer plays, and how long it gets to think about each move
+	public boolean computerWhite = false;
+	public boolean computerBlack = false;
+	public long thinkMillis = 1000;
+	public long thinkNodes = 0; // 0 for no limit
+	public int hashMegabytes = 64;
+	public int threads = 1;
+	// The opening book the computer plays from. If bookPgn is set, the book is built from those games instead.
+	public String bookPath = null;
+	public String bookPgn = null;
+	public int bookPlies = 20;
+	// Where the endgame bitbases are, and whether to generate them there rather than play
+	public String bitbasePath = null;
+	public boolean buildBitbases = false;
 	public String filePath;
 	public String fileContents;
 	public String[] raw;
 	public GameSettings(String[] raw) {
 		this.raw = raw;
 	}
+
+	public boolean isComputer(PieceColor color) {
+		return color == PieceColor.WHITE ? computerWhite : computerBlack;
+	}
 }
@@ -0,0 +1,21 @@
+package edu.neumont.chessmasters.models;
+
+/**
+ * Where a game stands for the side to move.
+ */
+public enum GameStatus {
+    ONGOING,
+    CHECK,
+    CHECKMATE,
+    STALEMATE,
+    DEAD_POSITION,
+    FIFTY_MOVE_DRAW;
+
+    public boolean isOver() {
+        return this != ONGOING && this != CHECK;
+    }
+
+    public boolean isDraw() {
+        return isOver() && this != CHECKMATE;
+    }
+}
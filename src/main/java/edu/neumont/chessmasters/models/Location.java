@@ -1,38 +1,61 @@
 package edu.neumont.chessmasters.models;
 
+/**
+ * An immutable board square. There are only 64 squares, so every one is created up front and shared;
+ * use {@link #of(int, int)}, {@link #of(int)} or {@link #of(String)} rather than the constructors.
+ */
 public class Location {
 
-    private int x = 0, y = 0;
+    private static final Location[] SQUARES = new Location[64];
+
+    static {
+        for (int square = 0; square < 64; square++)
+            SQUARES[square] = new Location(Bitboards.getX(square), Bitboards.getY(square));
+    }
+
+    private final int x, y;
 
     public Location(String coordinates) {
-        coordinates = coordinates.toLowerCase();
-        setX(getX(coordinates));
-        setY(getY(coordinates));
+        this(getX(coordinates), getY(coordinates));
     }
 
     public Location(int x, int y) {
-        setX(x);
-        setY(y);
+        checkBounds(x);
+        checkBounds(y);
+        this.x = x;
+        this.y = y;
     }
 
-    public int getX() {
-        return x;
+    private static void checkBounds(int coordinate) {
+        if (coordinate > 7 || coordinate < 0)
+            throw new IndexOutOfBoundsException("Cannot set piece's location beyond 7 or less than 0");
     }
 
-    public void setX(int x) {
-        if (x > 7 || x < 0)
-            throw new IndexOutOfBoundsException("Cannot set piece's location beyond 7 or less than 0");
-        this.x = x;
+    public static Location of(int x, int y) {
+        checkBounds(x);
+        checkBounds(y);
+        return SQUARES[Bitboards.square(x, y)];
+    }
+
+    public static Location of(int square) {
+        return SQUARES[square];
+    }
+
+    public static Location of(String coordinates) {
+        return of(getX(coordinates), getY(coordinates));
+    }
+
+    public int getX() {
+        return x;
     }
 
     public int getY() {
         return y;
     }
 
-    public void setY(int y) {
-        if (y > 7 || y < 0)
-            throw new IndexOutOfBoundsException("Cannot set piece's location beyond 7 or less than 0");
-        this.y = y;
+    // This square's bit index, as used by Bitboards
+    public int getIndex() {
+        return Bitboards.square(x, y);
     }
 
     public static int getY(String location) {
@@ -47,33 +70,19 @@ public class Location {
     }
 
     public static Location[] getExclusiveRange(Location a, Location b) {
-        int ax = a.getX(), ay = a.getY(),
-                bx = b.getX(), by = b.getY(),
-                Dx = bx - ax, Dy = by - ay;
-        // if locations are adjacent or overlap
-        if (-1 <= Dx && Dx <= 1 && -1 <= Dy && Dy <= 1)
-            return new Location[0];
-        // if we're not moving along a rank or a file, and we're not moving along a diagonal,
-        // then we're doing something weird like a knight. return an empty set
-        if ((Dx == 0) == (Dy == 0) && Math.abs(Dx) != Math.abs(Dy))
-            return new Location[0];
-
-        // vector components for iterating along the line
-        int dx = (Dx == 0 ? 0 : Dx / Math.abs(Dx)), dy = (Dy == 0 ? 0 : Dy / Math.abs(Dy));
-
-        Location[] out = new Location[Math.max(Math.abs(Dx), Math.abs(Dy)) - 1];
+        long between = Bitboards.between(a.getIndex(), b.getIndex());
+        Location[] out = new Location[Bitboards.count(between)];
 
+        // bits come out lowest first, so flip them round if we're heading towards lower squares
+        boolean reverse = b.getIndex() < a.getIndex();
         int index = 0;
-        while (ax + dx != bx || ay + dy != by) {
-            ax += dx;
-            ay += dy;
-            out[index++] = new Location(ax, ay);
-        }
+        for (long bb = between; bb != 0; bb &= bb - 1)
+            out[reverse ? out.length - 1 - index++ : index++] = of(Bitboards.first(bb));
         return out;
     }
 
     public Location add(int x, int y) {
-        return new Location(getX() + x, getY() + y);
+        return of(getX() + x, getY() + y);
     }
 
     @Override
@@ -83,8 +92,17 @@ public class Location {
         return Character.toString(file) + rank;
     }
 
-    public boolean equals(Location other) {
-        return this.getX() == other.getX() && this.getY() == other.getY();
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof Location)) return false;
+        Location l = (Location) other;
+        return this.getX() == l.getX() && this.getY() == l.getY();
+    }
+
+    @Override
+    public int hashCode() {
+        return getIndex();
     }
 
 }
@@ -1,28 +1,51 @@
 package edu.neumont.chessmasters.models;
 
-import edu.neumont.chessmasters.ChessMasters;
 import edu.neumont.chessmasters.Utils;
 import edu.neumont.chessmasters.models.Location;
 import edu.neumont.chessmasters.models.pieces.PieceColor;
+import edu.neumont.chessmasters.models.pieces.PieceType;
 import edu.neumont.chessmasters.exceptions.IncompleteMoveException;
 
 import java.util.regex.Pattern;
 
 public class Move {
 
-		public final Location from, to;
+		// Moves produced by the move generator are packed into an int so that generating them doesn't allocate:
+		// bits 0-5 hold the source square, 6-11 the destination square, 12-14 the promotion (PieceType ordinal + 1,
+		// or 0 for none), and the bits above that hold the flags below. Castles are encoded as the king moving onto
+		// its rook, same as the player enters them.
+		public static final int CAPTURE     = 1 << 15;
+		public static final int EN_PASSANT  = 1 << 16;
+		public static final int CASTLE      = 1 << 17;
+		public static final int DOUBLE_PUSH = 1 << 18;
+
+		// Kept rather than calling values(), which copies the array, as promotions are looked up for every capture scored
+		private static final PieceType[] TYPES = PieceType.values();
+
+		public final Location  from, to;
+		// The piece a pawn should promote to, or null if we should ask
+		public final PieceType promotion;
 
 		public Move(Location from, Location to) {
+			this(from, to, null);
+		}
+
+		public Move(Location from, Location to, PieceType promotion) {
 			this.from = from;
 			this.to = to;
+			this.promotion = promotion;
 		}
 
 		public Move(String from, String to) {
-			this(new Location(from), new Location(to));
+			this(Location.of(from), Location.of(to));
 		}
 
 		public static Move fromSrcDest(String input) {
-			if (ChessMasters.controller.getSettings().debug)
+			return fromSrcDest(input, null);
+		}
+
+		private static Move fromSrcDest(String input, Board board) {
+			if (board != null && board.getSession() != null && board.getSession().getSettings().debug)
 				System.err.println("[ debug ] Parsing source-destination syntax");
 			String[] squares = input.split(" ");
 			return new Move(squares[0], squares[1]);
@@ -46,11 +69,11 @@ public class Move {
 					return Move.fromFreeform("e8 a8", board);
 			}
 			if (Pattern.matches("[A-Ha-h][1-8] [A-Ha-h][1-8]", input)) {
-				return fromSrcDest(input);
+				return fromSrcDest(input, board);
 			}
 			// someone please know a better way to do this
 			if (Pattern.matches("[A-Ha-h][1-8][A-Ha-h][1-8]", input)) {
-				return fromSrcDest(input.substring(0,2) + " " + input.substring(2,4));
+				return fromSrcDest(input.substring(0,2) + " " + input.substring(2,4), board);
 			}
 			if (Pattern.matches("[A-Ha-h][1-8]", input)) {
 				throw new IncompleteMoveException("Missing destination square");
@@ -58,5 +81,37 @@ public class Move {
 			throw new UnsupportedOperationException("I don't know how to parse the move described by \"" + input + "\"");
 		}
 
-		public String toString() { return from + " " + to; }
+		public static int encode(int from, int to, int flags) {
+			return from | (to << 6) | flags;
+		}
+
+		public static int encode(int from, int to, PieceType promotion, int flags) {
+			return encode(from, to, flags) | ((promotion.ordinal() + 1) << 12);
+		}
+
+		public static int getFrom(int move) {
+			return move & 0x3F;
+		}
+
+		public static int getTo(int move) {
+			return (move >>> 6) & 0x3F;
+		}
+
+		public static PieceType getPromotion(int move) {
+			int promotion = (move >>> 12) & 0x7;
+			return promotion == 0 ? null : TYPES[promotion - 1];
+		}
+
+		public static boolean hasFlag(int move, int flag) {
+			return (move & flag) != 0;
+		}
+
+		public static Move decode(int move) {
+			int from = getFrom(move), to = getTo(move);
+			return new Move(Location.of(from),
+					Location.of(to),
+					getPromotion(move));
+		}
+
+		public String toString() { return from + " " + to + (promotion == null ? "" : " " + promotion.name().toLowerCase()); }
 }
@@ -0,0 +1,148 @@
+package edu.neumont.chessmasters.models;
+
+import edu.neumont.chessmasters.models.pieces.PieceColor;
+import edu.neumont.chessmasters.models.pieces.PieceType;
+
+/**
+ * Generates pseudo-legal moves, packed as described in {@link Move}. Pseudo-legal moves follow the rules for how
+ * each piece moves, but may leave the mover's own king in check; {@link Board} filters those out.
+ */
+public class MoveGenerator {
+
+    // Enough for any reachable position (the known maximum is 218)
+    public static final int MAX_MOVES = 256;
+
+    // Which moves to generate. Between them, the two stages cover every move exactly once.
+    public static final int CAPTURES = 1; // Captures, including en passant, and all promotions
+    public static final int QUIETS   = 2; // Everything else, including castles
+    public static final int ALL      = CAPTURES | QUIETS;
+
+    private static final PieceType[] PROMOTIONS = {PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT};
+
+    /**
+     * Appends the pseudo-legal moves for the given color's pieces to the buffer.
+     *
+     * @param board The board to generate moves on
+     * @param color The color to generate moves for
+     * @param from  A mask of the source squares to consider
+     * @param moves The buffer to write to
+     * @param count The number of moves already in the buffer
+     * @return The number of moves in the buffer afterwards
+     */
+    public static int generate(Board board, PieceColor color, long from, int[] moves, int count) {
+        return generate(board, color, from, ALL, moves, count);
+    }
+
+    /**
+     * Appends some of the pseudo-legal moves for the given color's pieces to the buffer. A search can generate
+     * the captures first and often never needs the quiet moves at all.
+     *
+     * @param board  The board to generate moves on
+     * @param color  The color to generate moves for
+     * @param from   A mask of the source squares to consider
+     * @param stages {@link #CAPTURES}, {@link #QUIETS} or {@link #ALL}
+     * @param moves  The buffer to write to
+     * @param count  The number of moves already in the buffer
+     * @return The number of moves in the buffer afterwards
+     */
+    public static int generate(Board board, PieceColor color, long from, int stages, int[] moves, int count) {
+        boolean captures = (stages & CAPTURES) != 0, quiets = (stages & QUIETS) != 0;
+        long own = board.getOccupancy(color);
+        long occupied = board.getOccupancy();
+        // We never capture the king; if that were possible, the position would already be illegal
+        long enemies = board.getOccupancy(color.getOpposite()) & ~board.getBitboard(color.getOpposite(), PieceType.KING);
+
+        for (long bb = own & from; bb != 0; bb &= bb - 1) {
+            int square = Bitboards.first(bb);
+            long targets;
+            switch (board.getSquare(square).getType()) {
+                case PAWN:
+                    count = generatePawnMoves(board, color, square, enemies, captures, quiets, moves, count);
+                    continue;
+                case KNIGHT:
+                    targets = Bitboards.knightAttacks(square);
+                    break;
+                case BISHOP:
+                    targets = Bitboards.bishopAttacks(square, occupied);
+                    break;
+                case ROOK:
+                    targets = Bitboards.rookAttacks(square, occupied);
+                    break;
+                case QUEEN:
+                    targets = Bitboards.queenAttacks(square, occupied);
+                    break;
+                default:
+                    targets = Bitboards.kingAttacks(square);
+                    if (quiets)
+                        count = generateCastles(board, color, square, moves, count);
+                    break;
+            }
+            if (captures)
+                for (long t = targets & enemies; t != 0; t &= t - 1)
+                    moves[count++] = Move.encode(square, Bitboards.first(t), Move.CAPTURE);
+            if (quiets)
+                for (long t = targets & ~occupied; t != 0; t &= t - 1)
+                    moves[count++] = Move.encode(square, Bitboards.first(t), 0);
+        }
+        return count;
+    }
+
+    private static int generatePawnMoves(Board board, PieceColor color, int square, long enemies,
+                                         boolean captures, boolean quiets, int[] moves, int count) {
+        int y = Bitboards.getY(square);
+        int dy = color == PieceColor.WHITE ? 8 : -8;
+        int startRank = color == PieceColor.WHITE ? 1 : 6;
+        boolean promotes = y + dy / 8 == (color == PieceColor.WHITE ? 7 : 0);
+        long occupied = board.getOccupancy();
+
+        int ahead = square + dy;
+        // Pushes that promote count as captures, since they change the material just the same
+        if ((occupied & Bitboards.bit(ahead)) == 0 && (promotes ? captures : quiets)) {
+            count = addPawnMove(square, ahead, 0, promotes, moves, count);
+            if (y == startRank && (occupied & Bitboards.bit(ahead + dy)) == 0)
+                moves[count++] = Move.encode(square, ahead + dy, Move.DOUBLE_PUSH);
+        }
+        if (!captures) return count;
+
+        long attacks = Bitboards.pawnAttacks(color.ordinal(), square);
+        for (long t = attacks & enemies; t != 0; t &= t - 1)
+            count = addPawnMove(square, Bitboards.first(t), Move.CAPTURE, promotes, moves, count);
+        for (long t = attacks & board.getPassantTargets(color.getOpposite()); t != 0; t &= t - 1)
+            moves[count++] = Move.encode(square, Bitboards.first(t), Move.CAPTURE | Move.EN_PASSANT);
+        return count;
+    }
+
+    private static int addPawnMove(int from, int to, int flags, boolean promotes, int[] moves, int count) {
+        if (!promotes) {
+            moves[count++] = Move.encode(from, to, flags);
+            return count;
+        }
+        for (PieceType promotion : PROMOTIONS)
+            moves[count++] = Move.encode(from, to, promotion, flags);
+        return count;
+    }
+
+    private static int generateCastles(Board board, PieceColor color, int square, int[] moves, int count) {
+        int home = color == PieceColor.WHITE ? 4 : 60;
+        int rights = board.getCastlingRights();
+        int kingSide = color == PieceColor.WHITE ? Board.WHITE_KING_SIDE : Board.BLACK_KING_SIDE;
+        int queenSide = color == PieceColor.WHITE ? Board.WHITE_QUEEN_SIDE : Board.BLACK_QUEEN_SIDE;
+        if (square != home || (rights & (kingSide | queenSide)) == 0) return count;
+        PieceColor enemy = color.getOpposite();
+        if (board.isSquareAttacked(home, enemy)) return count;
+
+        long occupied = board.getOccupancy();
+        // king-side: the rook is three squares over, the king passes over the first two
+        if ((rights & kingSide) != 0
+                && (occupied & Bitboards.between(home, home + 3)) == 0
+                && !board.isSquareAttacked(home + 1, enemy) && !board.isSquareAttacked(home + 2, enemy))
+            moves[count++] = Move.encode(home, home + 3, Move.CASTLE);
+        // queen-side: the rook is four squares over, the king passes over the first two
+        if ((rights & queenSide) != 0
+                && (occupied & Bitboards.between(home, home - 4)) == 0
+                && !board.isSquareAttacked(home - 1, enemy) && !board.isSquareAttacked(home - 2, enemy))
+            moves[count++] = Move.encode(home, home - 4, Move.CASTLE);
+        return count;
+    }
+
+}
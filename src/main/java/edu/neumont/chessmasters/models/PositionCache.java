@@ -0,0 +1,127 @@
+package edu.neumont.chessmasters.models;
+
+import edu.neumont.chessmasters.models.pieces.PieceColor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the legal moves and status of recently seen positions, so the several places that ask about the same
+ * position during a turn (the move events, then the controller) only work it out once. Positions are keyed by
+ * {@link Board#hash(PieceColor)}, and once the cache is full the least recently used position makes way.
+ * <br/>
+ * The 50-move rule depends on the move clock rather than the position, so it's applied on the way out instead of
+ * being remembered.
+ */
+public class PositionCache {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static class Facts {
+        final int[]      moves;
+        final GameStatus status;
+
+        Facts(int[] moves, GameStatus status) {
+            this.moves = moves;
+            this.status = status;
+        }
+    }
+
+    private final Map<Long, Facts> entries;
+    private final int[]            buffer = new int[MoveGenerator.MAX_MOVES];
+    private       long             hits, misses;
+
+    public PositionCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity How many positions to remember
+     */
+    public PositionCache(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("A position cache needs room for at least one position, not " + capacity);
+        this.entries = new LinkedHashMap<Long, Facts>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Facts> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Gets the legal moves for a side.
+     *
+     * @param board The position
+     * @param color The side to move
+     * @return The moves, packed as in {@link Move}. The array is shared, so it mustn't be changed.
+     */
+    public synchronized int[] getLegalMoves(Board board, PieceColor color) {
+        return lookup(board, color).moves;
+    }
+
+    /**
+     * Works out where the game stands for a side.
+     *
+     * @param board The position
+     * @param color The side to move
+     * @return The status
+     */
+    public synchronized GameStatus getStatus(Board board, PieceColor color) {
+        GameStatus status = lookup(board, color).status;
+        // A mate delivered on the 50th move still counts
+        if (status != GameStatus.CHECKMATE && board.getMovesSinceCap() >= 50)
+            return GameStatus.FIFTY_MOVE_DRAW;
+        return status;
+    }
+
+    private Facts lookup(Board board, PieceColor color) {
+        long key = board.hash(color);
+        Facts facts = entries.get(key);
+        if (facts != null) {
+            hits++;
+            return facts;
+        }
+        misses++;
+
+        int count = board.generateLegalMoves(color, buffer);
+        int[] moves = new int[count];
+        System.arraycopy(buffer, 0, moves, 0, count);
+
+        boolean check = board.isInCheck(color);
+        GameStatus status;
+        if (count == 0)
+            status = check ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+        else if (board.isDeadPosition())
+            status = GameStatus.DEAD_POSITION;
+        else
+            status = check ? GameStatus.CHECK : GameStatus.ONGOING;
+
+        facts = new Facts(moves, status);
+        entries.put(key, facts);
+        return facts;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return How many lookups found their position already worked out
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return How many lookups had to work their position out
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+}
@@ -0,0 +1,34 @@
+package edu.neumont.chessmasters.models;
+
+import edu.neumont.chessmasters.models.pieces.PieceColor;
+
+/**
+ * The running score across games: a point for a win, half for a draw. Games played one after another share one, and
+ * as games can be played on several threads at once, it's synchronized.
+ */
+public class Scoreboard {
+
+    private double white, black;
+
+    public synchronized void increase(PieceColor color, double points) {
+        if (color == PieceColor.WHITE)
+            white += points;
+        else
+            black += points;
+    }
+
+    public synchronized void draw() {
+        white += .5;
+        black += .5;
+    }
+
+    public synchronized double getScore(PieceColor color) {
+        return color == PieceColor.WHITE ? white : black;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Overall Score: White - " + white + " Black - " + black;
+    }
+
+}
@@ -0,0 +1,55 @@
+package edu.neumont.chessmasters.models;
+
+/**
+ * Random keys for Zobrist hashing. A position's hash is the XOR of the keys for each piece on its square, plus the
+ * side to move, castling rights and en passant file, so adding or removing a piece is a single XOR.
+ * <br/>
+ * The keys come from a fixed seed so hashes are stable between runs, which anything stored on disk relies on.
+ */
+public class Zobrist {
+
+    // Indexed [color][type][square]
+    private static final long[][][] PIECES   = new long[2][6][64];
+    private static final long[]     CASTLING = new long[16];
+    private static final long[]     PASSANT  = new long[8];
+    public static final  long       BLACK_TO_MOVE;
+
+    private static long seed = 0x43686573734D6173L;
+
+    static {
+        for (int color = 0; color < 2; color++)
+            for (int type = 0; type < 6; type++)
+                for (int square = 0; square < 64; square++)
+                    PIECES[color][type][square] = next();
+        // Each castling right gets its own key, and a set of rights is the XOR of its members
+        long[] rights = {next(), next(), next(), next()};
+        for (int i = 0; i < 16; i++)
+            for (int bit = 0; bit < 4; bit++)
+                if ((i & (1 << bit)) != 0)
+                    CASTLING[i] ^= rights[bit];
+        for (int file = 0; file < 8; file++)
+            PASSANT[file] = next();
+        BLACK_TO_MOVE = next();
+    }
+
+    // SplitMix64
+    private static long next() {
+        long z = (seed += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public static long piece(int color, int type, int square) {
+        return PIECES[color][type][square];
+    }
+
+    public static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+    public static long passant(int file) {
+        return PASSANT[file];
+    }
+
+}
@@ -1,7 +1,5 @@
 package edu.neumont.chessmasters.models.pieces;
 
-import edu.neumont.chessmasters.models.Location;
-
 public class King extends Piece {
     private boolean isCastling = false;
 
@@ -9,6 +7,11 @@ public class King extends Piece {
         super(color, "k");
     }
 
+    @Override
+    public PieceType getType() {
+        return PieceType.KING;
+    }
+
     public boolean isCastling() {
         return isCastling;
     }
@@ -18,23 +21,22 @@ public class King extends Piece {
     }
 
     @Override
-    public boolean validateCapture(Location move) {
-        int dx = Math.abs(getLocation().getX() - move.getX());
-        int dy = Math.abs(getLocation().getY() - move.getY());
+    public boolean validateCapture(int x, int y) {
+        int dx = Math.abs(getLocation().getX() - x);
+        int dy = Math.abs(getLocation().getY() - y);
         boolean castle = (numMoves == 0 && dy == 0
-                && (move.getX() == 0 || move.getX() == 7));
+                && (x == 0 || x == 7));
         setCastling(castle);
         return (dx <= 1 && dy <= 1) //We are moving one space
                 || castle;
     }
 
     @Override
-    public boolean validateMove(String move) {
-        move = move.toLowerCase();
-        int dx = Math.abs(getLocation().getX() - Location.getX(move));
-        int dy = Math.abs(getLocation().getY() - Location.getY(move));
+    public boolean validateMove(int x, int y) {
+        int dx = Math.abs(getLocation().getX() - x);
+        int dy = Math.abs(getLocation().getY() - y);
         boolean castle = isCastling && numMoves == 0 && dy == 0
-                && (Location.getX(move) == 2 || Location.getX(move) == 6);
+                && (x == 2 || x == 6);
         boolean ret = (dx <= 1 && dy <= 1) //We are moving one space
                 || castle; //Or we are attempting a castle
         return ret;
@@ -1,17 +1,19 @@
 package edu.neumont.chessmasters.models.pieces;
 
-import edu.neumont.chessmasters.models.Location;
-
 public class Knight extends Piece {
     public Knight(PieceColor color) {
         super(color, "n");
     }
 
     @Override
-    public boolean validateMove(String move) {
-        move = move.toLowerCase();
-        int dx = Math.abs(getLocation().getX() - Location.getX(move));
-        int dy = Math.abs(getLocation().getY() - Location.getY(move));
+    public PieceType getType() {
+        return PieceType.KNIGHT;
+    }
+
+    @Override
+    public boolean validateMove(int x, int y) {
+        int dx = Math.abs(getLocation().getX() - x);
+        int dy = Math.abs(getLocation().getY() - y);
         return (dx == 1 && dy == 2) || (dy == 1 && dx == 2);
     }
 }
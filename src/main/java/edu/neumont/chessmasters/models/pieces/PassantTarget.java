@@ -14,7 +14,7 @@ public class PassantTarget extends Piece {
     }
 
     @Override
-    public boolean validateMove(String move) {
+    public boolean validateMove(int x, int y) {
         return false;
     }
 }
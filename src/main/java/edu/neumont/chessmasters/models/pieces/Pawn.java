@@ -1,15 +1,19 @@
 package edu.neumont.chessmasters.models.pieces;
 
-import edu.neumont.chessmasters.models.Location;
-
 public class Pawn extends Piece {
 
     protected boolean isPassantable = false;
+    private   PassantTarget passantTarget;
 
     public Pawn(PieceColor color) {
         super(color, "p");
     }
 
+    @Override
+    public PieceType getType() {
+        return PieceType.PAWN;
+    }
+
     public boolean shouldPromote() {
         return (color == PieceColor.WHITE && getLocation().getY() == 7) ||
                 (color == PieceColor.BLACK && getLocation().getY() == 0);
@@ -23,16 +27,26 @@ public class Pawn extends Piece {
         isPassantable = passantable;
     }
 
+    /**
+     * Gets the passant target for the square this pawn skips over on its first move.
+     * The same target is handed out every time, so speculative moves don't allocate one per double push.
+     *
+     * @return This pawn's passant target
+     */
+    public PassantTarget getPassantTarget() {
+        if (passantTarget == null)
+            passantTarget = new PassantTarget(this);
+        return passantTarget;
+    }
+
     @Override
-    public boolean validateMove(String move) {
-        move = move.toLowerCase();
+    public boolean validateMove(int x, int newY) {
         boolean canMove = false;
 
         int y = getLocation().getY();
-        int newY = Location.getY(move);
         if ((getColor() == PieceColor.WHITE && newY > y) ||
                 (getColor() == PieceColor.BLACK && newY < y)) {
-            int dx = Math.abs(getLocation().getX() - Location.getX(move));
+            int dx = Math.abs(getLocation().getX() - x);
             int dy = Math.abs(y - newY);
             canMove = (dx <= 1 && dy <= 1) || (numMoves == 0 && dx == 0 && dy <= 2);
         }
@@ -41,14 +55,13 @@ public class Pawn extends Piece {
     }
 
     @Override
-    public boolean validateCapture(Location location) {
+    public boolean validateCapture(int x, int newY) {
         boolean canMove = false;
 
         int y = getLocation().getY();
-        int newY = location.getY();
         if ((getColor() == PieceColor.WHITE && newY > y) ||
                 (getColor() == PieceColor.BLACK && newY < y)) {
-            int dx = Math.abs(getLocation().getX() - location.getX());
+            int dx = Math.abs(getLocation().getX() - x);
             int dy = Math.abs(y - newY);
             canMove = dx == 1 && dy == 1;
         }
@@ -1,11 +1,9 @@
 package edu.neumont.chessmasters.models.pieces;
 
-import edu.neumont.chessmasters.ChessMasters;
 import edu.neumont.chessmasters.Utils;
-import edu.neumont.chessmasters.controllers.PlayerMove;
-import edu.neumont.chessmasters.events.EventRegistry;
 import edu.neumont.chessmasters.events.PrePieceMoveEvent;
 import edu.neumont.chessmasters.models.Board;
+import edu.neumont.chessmasters.models.GameSession;
 import edu.neumont.chessmasters.models.Location;
 
 public abstract class Piece {
@@ -70,6 +68,15 @@ public abstract class Piece {
         return color;
     }
 
+    /**
+     * Gets the type of this piece, used to index the board's bitboards.
+     *
+     * @return The piece type, or null if this isn't a real piece (ie a {@link PassantTarget})
+     */
+    public PieceType getType() {
+        return null;
+    }
+
     public int getNumMoves() {
         return numMoves;
     }
@@ -87,7 +94,7 @@ public abstract class Piece {
     }
 
     public void setLocation(String location) {
-        setLocation(new Location(location));
+        setLocation(Location.of(location));
     }
 
     /**
@@ -95,7 +102,8 @@ public abstract class Piece {
      * If the piece's location has not yet been set, this will behave the same as {@link #setLocation(String)}
      * <br/>
      * <br/>
-     * Please note, this does not check if another piece exists at that location already.
+     * Please note, this does not check if another piece exists at that location already. As no board is given, only
+     * the piece's own movement rules are checked.
      *
      * @param location The coordinate location of the position to move to (ie 'a2')
      * @return boolean - Whether or not the move has been made.
@@ -105,33 +113,57 @@ public abstract class Piece {
     }
 
     public boolean move(String location, boolean quiet) {
+        return move(Location.of(location), quiet);
+    }
+
+    public boolean move(Location location) {
+        return move(location, false);
+    }
+
+    public boolean move(Location location, boolean quiet) {
+        return move(location, null, quiet);
+    }
+
+    /**
+     * Attempts to move the piece to the given location on the board it stands on, giving the move handlers a chance
+     * to refuse it first.
+     *
+     * @param location The location to move to
+     * @param board    The board the piece is on, which the handlers judge the move against. If null, or not part of
+     *                 a {@link GameSession}, there are no handlers to ask.
+     * @param quiet    Whether this is only a probe, like the moves tried on ghost boards. No event is made, so nothing
+     *                 is reported and only the piece's movement rules are checked.
+     * @return Whether the move has been made
+     */
+    public boolean move(Location location, Board board, boolean quiet) {
+        GameSession session = board == null ? null : board.getSession();
         //Validate the passed in location
         if (this.getLocation() != null && !validateMove(location)) {
-            if (!quiet)
-                ChessMasters.controller.setStatus("This piece can't move in this way.");
+            if (!quiet && session != null)
+                session.setStatus("This piece can't move in this way.");
             return false;
         }
 
-        PrePieceMoveEvent event = new PrePieceMoveEvent(this, new Location(location), !quiet ? PlayerMove.inst().getBoard() : new Board(PlayerMove.inst().getBoard()));
-        if (this instanceof King) { //Set our castle event
-            event.setCastle(numMoves == 0 && Location.getY(location) == getLocation().getY()
-                    && (Location.getX(location) == 2 || Location.getX(location) == 6));
-        }
-        if (!quiet) {
+        Location dest = location;
+        if (!quiet && session != null) {
+            PrePieceMoveEvent event = new PrePieceMoveEvent(this, location, board);
+            if (this instanceof King) { //Set our castle event
+                event.setCastle(numMoves == 0 && location.getY() == getLocation().getY()
+                        && (location.getX() == 2 || location.getX() == 6));
+            }
             //We have to make sure to CALL our events
-            EventRegistry.callEvents(event);
-        }
+            session.getEvents().callEvent(event);
 
-        if (event.isCancelled())
-            return false;
+            if (event.isCancelled())
+                return false;
 
-        location = event.getLocation().toString();
+            dest = event.getLocation();
 
-        //Validate the potential new location
-        if (this.getLocation() != null && !validateMove(location))
-            return false;
+            //Validate the potential new location
+            if (this.getLocation() != null && !validateMove(dest))
+                return false;
+        }
 
-        Location dest = new Location(location);
         this.location = dest;
         if (this instanceof King)
             ((King) this).setCastling(false);
@@ -139,20 +171,12 @@ public abstract class Piece {
         return true;
     }
 
-    public boolean move(Location location) {
-        return move(location, false);
-    }
-
-    public boolean move(Location location, boolean quiet) {
-        return move(location.toString(), quiet);
-    }
-
     public Piece clone() {
         Piece piece;
         if (this instanceof PassantTarget)
             piece = new PassantTarget(((PassantTarget) this).getOwner());
         else
-            piece = Piece.fromFEN(getNotation());
+            piece = getType().create(getColor());
 
         piece.setLocation(this.getLocation());
         piece.setNumMoves(this.getNumMoves());
@@ -161,20 +185,37 @@ public abstract class Piece {
     }
 
     public boolean validateMove(Location location) {
-        return validateMove(location.toString());
+        return validateMove(location.getX(), location.getY());
     }
 
-    public abstract boolean validateMove(String move);
+    public boolean validateMove(String move) {
+        return validateMove(Location.getX(move), Location.getY(move));
+    }
+
+    /**
+     * Checks whether this piece's movement rules allow it to reach the given square from where it stands.
+     * Nothing else on the board is taken into account.
+     *
+     * @param x The destination file, 0 through 7
+     * @param y The destination rank, 0 through 7
+     * @return Whether the move fits this piece's movement
+     */
+    public abstract boolean validateMove(int x, int y);
+
+    public boolean validateCapture(Location location) {
+        return validateCapture(location.getX(), location.getY());
+    }
 
     /**
      * Validates that a capture is legal.
      * This is really most applicable to Pawns as they can't capture where they indeed might be able to move.
      *
-     * @param location
-     * @return
+     * @param x The target file, 0 through 7
+     * @param y The target rank, 0 through 7
+     * @return Whether this piece could capture on that square
      */
-    public boolean validateCapture(Location location) {
-        return validateMove(location);
+    public boolean validateCapture(int x, int y) {
+        return validateMove(x, y);
     }
 
     public String getNotation() {
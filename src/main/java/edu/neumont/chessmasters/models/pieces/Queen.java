@@ -1,17 +1,19 @@
 package edu.neumont.chessmasters.models.pieces;
 
-import edu.neumont.chessmasters.models.Location;
-
 public class Queen extends Piece {
     public Queen(PieceColor color) {
         super(color, "q");
     }
 
     @Override
-    public boolean validateMove(String move) {
-        move = move.toLowerCase();
-        int dx = Math.abs(getLocation().getX() - Location.getX(move));
-        int dy = Math.abs(getLocation().getY() - Location.getY(move));
+    public PieceType getType() {
+        return PieceType.QUEEN;
+    }
+
+    @Override
+    public boolean validateMove(int x, int y) {
+        int dx = Math.abs(getLocation().getX() - x);
+        int dy = Math.abs(getLocation().getY() - y);
         return dx == 0 || dy == 0 || dx == dy;
     }
 }
@@ -0,0 +1,132 @@
+package edu.neumont.chessmasters.engine;
+
+import edu.neumont.chessmasters.engine.Bitbases.Ending;
+import edu.neumont.chessmasters.models.Board;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Generates the smaller bitbases and checks them against well-known positions. KBNK takes a minute or so, so its
+ * test is tagged slow and only runs with the slow-tests profile.
+ */
+class BitbasesTest {
+
+    private static Path     directory;
+    private static Bitbases bitbases;
+
+    @BeforeAll
+    static void generate() throws IOException {
+        directory = Files.createTempDirectory("bitbases");
+        BitbaseGenerator generator = new BitbaseGenerator();
+        for (Ending ending : new Ending[]{Ending.KQK, Ending.KRK, Ending.KPK}) {
+            long start = System.nanoTime();
+            BitbaseGenerator.write(generator.generate(ending), directory.resolve(ending.getFileName()));
+            System.out.println(ending + " took " + generator.getPasses() + " passes and "
+                    + (System.nanoTime() - start) / 1_000_000 + "ms");
+        }
+        bitbases = new Bitbases(directory);
+    }
+
+    @AfterAll
+    static void cleanUp() throws IOException {
+        for (Ending ending : Ending.values())
+            Files.deleteIfExists(directory.resolve(ending.getFileName()));
+        Files.delete(directory);
+    }
+
+    private static int probe(String fen) {
+        return bitbases.probe(new Board(fen));
+    }
+
+    @Test
+    void queenAndRook() {
+        System.out.println("\n --[ Probing KQK and KRK ]-- ");
+        assertEquals(Bitbases.WIN, probe("7k/8/8/8/8/8/8/K5Q1 w - - 0 1"));
+        assertEquals(Bitbases.LOSS, probe("7k/8/8/8/8/8/8/K5Q1 b - - 0 1"));
+        // The same with the colors swapped, which is flipped before it's looked up
+        assertEquals(Bitbases.WIN, probe("k5q1/8/8/8/8/8/8/7K b - - 0 1"));
+        assertEquals(Bitbases.WIN, probe("8/8/3k4/8/8/8/8/R3K3 w - - 0 1"));
+        // The queen can be taken
+        assertEquals(Bitbases.DRAW, probe("8/8/8/8/8/2k5/1Q6/7K b - - 0 1"));
+        // Stalemate
+        assertEquals(Bitbases.DRAW, probe("k7/2Q5/1K6/8/8/8/8/8 b - - 0 1"));
+        System.out.println("Queens and rooks win unless they're lost straight away or it's stalemate.");
+    }
+
+    @Test
+    void pawn() {
+        System.out.println("\n --[ Probing KPK ]-- ");
+        // A king in front of its pawn on the sixth rank wins whoever is to move
+        assertEquals(Bitbases.WIN, probe("4k3/8/4K3/4P3/8/8/8/8 w - - 0 1"));
+        assertEquals(Bitbases.LOSS, probe("4k3/8/4K3/4P3/8/8/8/8 b - - 0 1"));
+        // One square further up, it's stalemate with black to move, but white to move gets round with Kd6 and Kd7
+        assertEquals(Bitbases.DRAW, probe("4k3/4P3/4K3/8/8/8/8/8 b - - 0 1"));
+        assertEquals(Bitbases.WIN, probe("4k3/4P3/4K3/8/8/8/8/8 w - - 0 1"));
+        // A rook pawn can't be won against a king in the corner
+        assertEquals(Bitbases.DRAW, probe("k7/8/1K6/P7/8/8/8/8 w - - 0 1"));
+        // A king outside the square of the pawn can't catch it
+        assertEquals(Bitbases.LOSS, probe("8/8/8/8/8/7k/P7/K7 b - - 0 1"));
+        // Whoever has the opposition gets their way
+        assertEquals(Bitbases.DRAW, probe("8/8/4k3/8/4K3/4P3/8/8 w - - 0 1"));
+        assertEquals(Bitbases.LOSS, probe("8/8/4k3/8/4K3/4P3/8/8 b - - 0 1"));
+        System.out.println("The usual pawn endings come out as expected.");
+    }
+
+    @Test
+    @Tag("slow")
+    void bishopAndKnight() throws IOException {
+        System.out.println("\n --[ Generating and probing KBNK ]-- ");
+        BitbaseGenerator generator = new BitbaseGenerator();
+        long start = System.nanoTime();
+        BitbaseGenerator.write(generator.generate(Ending.KBNK), directory.resolve(Ending.KBNK.getFileName()));
+        System.out.println("KBNK took " + generator.getPasses() + " passes and "
+                + (System.nanoTime() - start) / 1_000_000 + "ms");
+        Bitbases withKbnk = new Bitbases(directory);
+
+        // Nothing hangs, so the mate can be forced from either side of the move
+        assertEquals(Bitbases.WIN, withKbnk.probe(new Board("8/8/4k3/8/8/8/8/2B1KN2 w - - 0 1")));
+        assertEquals(Bitbases.LOSS, withKbnk.probe(new Board("8/8/4k3/8/8/8/8/2B1KN2 b - - 0 1")));
+        // The same with the colors swapped
+        assertEquals(Bitbases.WIN, withKbnk.probe(new Board("2b1kn2/8/8/8/8/4K3/8/8 b - - 0 1")));
+        // The lone king takes the undefended knight, leaving too little to mate with
+        assertEquals(Bitbases.DRAW, withKbnk.probe(new Board("8/8/8/8/8/4k3/3N4/K6B b - - 0 1")));
+        System.out.println("Bishop and knight win unless one of them is lost.");
+    }
+
+    @Test
+    void guidesTheSearch() {
+        System.out.println("\n --[ Searching with the bitbases ]-- ");
+        Search search = new Search(new TranspositionTable(1));
+        search.setBitbases(bitbases);
+        // Promoting goes into KQK, which is known to be won
+        SearchResult result = search.search(new Board("4k3/4P3/4K3/8/8/8/8/8 w - - 0 1"), 0, 0, 6, null);
+        System.out.println(result);
+        assertTrue(result.score >= Search.KNOWN_WIN);
+        // Every line is a known draw, whatever the material says
+        result = search.search(new Board("8/8/4k3/8/4K3/4P3/8/8 w - - 0 1"), 0, 0, 6, null);
+        System.out.println(result);
+        assertEquals(0, result.score);
+    }
+
+    @Test
+    void unknown() {
+        System.out.println("\n --[ Probing positions without a bitbase ]-- ");
+        assertEquals(Bitbases.UNKNOWN, probe("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"));
+        assertEquals(Bitbases.UNKNOWN, probe("8/8/3k4/8/8/8/3q4/R3K3 w - - 0 1"));
+        // Mapped before KBNK is generated, so it stays unknown here whatever order the tests run in
+        assertEquals(Bitbases.UNKNOWN, probe("8/8/3k4/8/8/8/8/1BN1K3 w - - 0 1"));
+        assertFalse(bitbases.has(Ending.KBNK));
+        System.out.println("Other material, and endings that weren't generated, are unknown.");
+    }
+
+}
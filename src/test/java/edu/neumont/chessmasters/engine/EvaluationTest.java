@@ -0,0 +1,47 @@
+package edu.neumont.chessmasters.engine;
+
+import edu.neumont.chessmasters.Utils;
+import edu.neumont.chessmasters.models.Board;
+import edu.neumont.chessmasters.models.MoveGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EvaluationTest {
+
+    @Test
+    void symmetry() {
+        System.out.println("\n --[ Ensuring mirrored positions score the same ]-- ");
+        assertEquals(0, Evaluation.evaluate(new Board()));
+        System.out.println("The start position is even.");
+
+        // Kiwipete, and the same position with the colors swapped and the board flipped
+        Board white = new Board("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        Board black = new Board("r3k2r/pppbbppp/2n2q1P/1P2p3/3pn3/BN2PNP1/P1PPQPB1/R3K2R b KQkq - 0 1");
+        assertEquals(Evaluation.evaluate(white), Evaluation.evaluate(black));
+        System.out.println("Kiwipete scores " + Evaluation.evaluate(white) + " for whoever is to move, either way round.");
+    }
+
+    @Test
+    void incrementalUpdates() {
+        System.out.println("\n --[ Ensuring the running totals match a fresh count ]-- ");
+        Board board = new Board("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        int start = Evaluation.evaluate(board);
+        Random random = new Random(42);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int played = 0;
+        for (; played < 60; played++) {
+            int count = board.generateLegalMoves(Utils.Turns.getColor(board), moves);
+            if (count == 0) break;
+            board.makeMove(moves[random.nextInt(count)]);
+            assertEquals(Evaluation.evaluate(new Board(board.toFEN())), Evaluation.evaluate(board), board.toFEN());
+        }
+        for (int i = 0; i < played; i++)
+            board.unmakeMove();
+        assertEquals(start, Evaluation.evaluate(board));
+        System.out.println("Played and took back " + played + " random moves without the totals drifting.");
+    }
+
+}
@@ -0,0 +1,91 @@
+package edu.neumont.chessmasters.engine;
+
+import edu.neumont.chessmasters.models.Board;
+import edu.neumont.chessmasters.models.Move;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OpeningBookTest {
+
+    private static final String GAMES =
+            "[Event \"One\"]\n" +
+            "[Result \"1-0\"]\n" +
+            "\n" +
+            "1. e4 e5 2. Nf3 {the usual} Nc6 3. Bb5 a6 (3... Nf6 4. O-O) 4. Ba4 Nf6 5. O-O 1-0\n" +
+            "\n" +
+            "[Event \"Two\"]\n" +
+            "[Result \"1/2-1/2\"]\n" +
+            "\n" +
+            "1.e4 c5 2.Nf3 d6 $1 3.d4 cxd4 4.Nxd4 Nf6 5.Nc3 a6 1/2-1/2\n" +
+            "\n" +
+            "[Event \"Three\"]\n" +
+            "[Result \"0-1\"]\n" +
+            "\n" +
+            "1. d4 d5 2. c4 e6 0-1\n";
+
+    private static String show(int move) {
+        return Move.decode(move).toString();
+    }
+
+    @Test
+    void buildsAndPicks() throws IOException {
+        System.out.println("\n --[ Building a book and playing from it ]-- ");
+        BookBuilder builder = new BookBuilder(20);
+        assertEquals(3, builder.addGames(new StringReader(GAMES)));
+        Path path = Files.createTempFile("book", ".bin");
+        try {
+            int entries = builder.write(path);
+            assertEquals(entries * OpeningBook.ENTRY_BYTES, Files.size(path));
+            OpeningBook book = new OpeningBook(path);
+            assertEquals(entries, book.size());
+
+            // 1. e4 won once and drew once, 1. d4 lost, so it never made the book
+            Board board = new Board();
+            Random random = new Random(1);
+            for (int i = 0; i < 10; i++)
+                assertEquals("e2 e4", show(book.pick(board, random)));
+            // Black lost after 1. e4 e5, so only 1... c5 made it, and the drawn game can be followed from there
+            for (String expected : new String[]{"e2 e4", "c7 c5", "g1 f3", "d7 d6", "d2 d4", "c5 d4", "f3 d4", "g8 f6", "b1 c3"}) {
+                assertEquals(1, book.count(board));
+                int move = book.pick(board, random);
+                assertEquals(expected, show(move));
+                board.makeMove(move);
+            }
+
+            // Comments and variations aren't moves, and castles come out as the king taking the rook
+            Board ruyLopez = new Board("r1bqkb1r/1ppp1ppp/p1n2n2/4p3/B3P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 2 5");
+            assertEquals("e1 h1", show(book.pick(ruyLopez, random)));
+
+            assertEquals(0, book.pick(new Board("4k3/8/8/8/8/8/8/4K3 w - - 0 1"), random));
+            System.out.println("The book has " + entries + " entries and answers what it knows.");
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void parsesSan() {
+        System.out.println("\n --[ Reading standard algebraic notation ]-- ");
+        BookBuilder builder = new BookBuilder(0);
+        // Two knights can reach d2, and two rooks can reach d1
+        Board board = new Board("3k4/1P6/8/3pP3/8/1N3N2/8/R3K2R w KQ d6 0 1");
+        assertEquals("b3 d2", show(builder.parseSan(board, "Nbd2")));
+        assertEquals("f3 d2", show(builder.parseSan(board, "Nfd2")));
+        assertEquals(0, builder.parseSan(board, "Nd2"));
+        assertEquals("e5 d6", show(builder.parseSan(board, "exd6")));
+        assertEquals("b7 b8 queen", show(builder.parseSan(board, "b8=Q")));
+        assertEquals("b7 b8 knight", show(builder.parseSan(board, "b8N")));
+        assertEquals("e1 h1", show(builder.parseSan(board, "O-O")));
+        assertEquals("e1 a1", show(builder.parseSan(board, "O-O-O")));
+        assertEquals(0, builder.parseSan(board, "Qd4"));
+        System.out.println("Disambiguation, en passant, promotions and castles all read correctly.");
+    }
+
+}
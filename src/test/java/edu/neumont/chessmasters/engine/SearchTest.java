@@ -0,0 +1,53 @@
+package edu.neumont.chessmasters.engine;
+
+import edu.neumont.chessmasters.models.Board;
+import edu.neumont.chessmasters.models.Move;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SearchTest {
+
+    private static SearchResult search(String fen, int depth) {
+        Board board = new Board(fen);
+        SearchResult result = new Search(new TranspositionTable(1)).search(board, 0, 0, depth, null);
+        assertEquals(fen, board.toFEN(), "searching should leave the board as it found it");
+        System.out.println(result);
+        return result;
+    }
+
+    @Test
+    void findsMateInOne() {
+        System.out.println("\n --[ Ensuring the search finds a back rank mate ]-- ");
+        SearchResult result = search("6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1", 3);
+        assertEquals("d1 d8", Move.decode(result.move).toString());
+        assertEquals(Search.MATE - 1, result.score);
+    }
+
+    @Test
+    void findsMateInThree() {
+        System.out.println("\n --[ Ensuring the search finds a mate in three ]-- ");
+        SearchResult result = search("2r3k1/p4p2/3Rp2p/1p2P1pK/8/1P4P1/P3Q2P/1q6 b - - 0 1", 6);
+        assertEquals(Search.MATE - 5, result.score);
+        assertEquals(5, result.pv.length);
+    }
+
+    @Test
+    void winsMaterial() {
+        System.out.println("\n --[ Ensuring the search takes a hanging queen ]-- ");
+        SearchResult result = search("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1", 2);
+        assertEquals("d2 d5", Move.decode(result.move).toString());
+    }
+
+    @Test
+    void sharesWorkBetweenThreads() {
+        System.out.println("\n --[ Ensuring a multi-threaded search agrees with a single-threaded one ]-- ");
+        String fen = "2r3k1/p4p2/3Rp2p/1p2P1pK/8/1P4P1/P3Q2P/1q6 b - - 0 1";
+        Board board = new Board(fen);
+        SearchResult result = new Search(new TranspositionTable(1), 4).search(board, 0, 0, 6, null);
+        System.out.println(result);
+        assertEquals(fen, board.toFEN());
+        assertEquals(Search.MATE - 5, result.score);
+    }
+
+}
@@ -0,0 +1,50 @@
+package edu.neumont.chessmasters.engine;
+
+import edu.neumont.chessmasters.Utils;
+import edu.neumont.chessmasters.models.Board;
+import edu.neumont.chessmasters.models.Move;
+import edu.neumont.chessmasters.models.MoveGenerator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StaticExchangeTest {
+
+    private static int see(String fen, String move) {
+        Board board = new Board(fen);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = board.generateLegalMoves(Utils.Turns.getColor(board), moves);
+        for (int i = 0; i < count; i++)
+            if (Move.decode(moves[i]).toString().equals(move))
+                return new StaticExchange().evaluate(board, moves[i]);
+        throw new IllegalArgumentException(move + " isn't legal in " + fen);
+    }
+
+    @Test
+    void exchanges() {
+        System.out.println("\n --[ Evaluating exchanges ]-- ");
+        // An undefended pawn
+        assertEquals(100, see("1k1r4/1pp4p/p7/4p3/8/P5P1/1PP4P/2K1R3 w - - 0 1", "e1 e5"));
+        // A pawn defended by a pawn, taken with a knight
+        assertEquals(-220, see("1k6/8/3p4/4p3/8/5N2/8/1K6 w - - 0 1", "f3 e5"));
+        // The rook behind backs the first one up once it has gone
+        assertEquals(100, see("1k2r3/8/8/4p3/8/8/4R3/1K2R3 w - - 0 1", "e2 e5"));
+        // But not if it's the queen that goes first
+        assertEquals(-300, see("1k2r3/8/8/4p3/8/8/4Q3/1K2R3 w - - 0 1", "e2 e5"));
+        System.out.println("Free pawns, defended pawns and x-rays add up.");
+    }
+
+    @Test
+    void specialMoves() {
+        System.out.println("\n --[ Evaluating en passant and promotions ]-- ");
+        assertEquals(100, see("4k3/8/8/3Pp3/8/8/8/4K3 w - e6 0 1", "d5 e6"));
+        // The pawn taken en passant no longer shields the square from the rook behind it
+        assertEquals(0, see("4k3/8/8/3Pp3/8/8/K7/4r3 w - e6 0 1", "d5 e6"));
+        // Taking the rook and promoting wins it and the queen, less the queen taken back
+        assertEquals(400, see("3rk3/2P5/8/8/8/8/8/4K3 w - - 0 1", "c7 d8 queen"));
+        // The rook only sees the promotion square once the pawn has left it
+        assertEquals(-100, see("4k3/2P5/8/8/8/8/7K/2r5 w - - 0 1", "c7 c8 queen"));
+        System.out.println("En passant and promotions are valued correctly.");
+    }
+
+}
@@ -0,0 +1,171 @@
+package edu.neumont.chessmasters.events;
+
+import edu.neumont.chessmasters.annotations.EventHandler;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventRegistryTest {
+
+    // Events of their own, so that nothing else registered sees them
+    static class TestEvent extends Event {
+        final List<String> calls = new ArrayList<>();
+    }
+
+    static class OtherEvent extends Event {
+    }
+
+    static class VetoEvent extends TestEvent implements Cancellable {
+        boolean cancelled;
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void setCancelled(boolean cancelled) {
+            this.cancelled = cancelled;
+        }
+    }
+
+    static class BackgroundEvent extends Event {
+        final int          number;
+        final List<String> log;
+        Thread             handledOn;
+
+        BackgroundEvent(int number, List<String> log) {
+            this.number = number;
+            this.log = log;
+        }
+    }
+
+    static class Listener {
+        @EventHandler(priority = -5)
+        public void last(TestEvent event) {
+            event.calls.add("last");
+        }
+
+        @EventHandler
+        public void middle(TestEvent event) {
+            event.calls.add("middle");
+        }
+
+        @EventHandler(priority = 10)
+        public void first(TestEvent event) {
+            event.calls.add("first");
+        }
+
+        @EventHandler
+        public void other(OtherEvent event) {
+            throw new IllegalStateException("Handlers for other events shouldn't be called");
+        }
+
+        public void notAHandler(TestEvent event) {
+            event.calls.add("not a handler");
+        }
+    }
+
+    static class Validators {
+        @EventHandler(priority = 10, ignoreCancelled = true)
+        public void veto(VetoEvent event) {
+            event.calls.add("veto");
+            event.setCancelled(true);
+        }
+
+        @EventHandler(ignoreCancelled = true)
+        public void expensive(VetoEvent event) {
+            event.calls.add("expensive");
+        }
+
+        @EventHandler(priority = -10)
+        public void monitor(VetoEvent event) {
+            event.calls.add("monitor " + event.isCancelled());
+        }
+    }
+
+    static class Reporter {
+        @EventHandler
+        public void now(BackgroundEvent event) {
+            event.log.add("now " + event.number);
+        }
+
+        @EventHandler(async = true)
+        public void later(BackgroundEvent event) throws InterruptedException {
+            // The earlier events take longest, so they'd finish last if nothing kept them in order
+            Thread.sleep(20 - event.number);
+            event.handledOn = Thread.currentThread();
+            event.log.add("later " + event.number);
+        }
+    }
+
+    @Test
+    void callsInPriorityOrder() {
+        System.out.println("\n --[ Calling handlers in priority order ]-- ");
+        EventRegistry registry = new EventRegistry();
+        Listener listener = new Listener();
+        registry.registerEvents(listener);
+        // Registering twice changes nothing
+        registry.registerEvents(listener);
+
+        TestEvent event = new TestEvent();
+        registry.callEvent(event);
+        assertEquals(Arrays.asList("first", "middle", "last"), event.calls);
+        System.out.println("Handlers ran as " + event.calls + ".");
+    }
+
+    @Test
+    void skipsCancelled() {
+        System.out.println("\n --[ Skipping handlers once an event is cancelled ]-- ");
+        EventRegistry registry = new EventRegistry();
+        registry.registerEvents(new Validators());
+        VetoEvent event = new VetoEvent();
+        registry.callEvent(event);
+        assertEquals(Arrays.asList("veto", "monitor true"), event.calls);
+        System.out.println("Handlers ran as " + event.calls + ".");
+    }
+
+    @Test
+    void handlesInBackgroundInOrder() {
+        System.out.println("\n --[ Handling events in the background, in order ]-- ");
+        EventRegistry registry = new EventRegistry();
+        registry.registerEvents(new Reporter());
+        List<String> log = Collections.synchronizedList(new ArrayList<>());
+
+        BackgroundEvent first = new BackgroundEvent(0, log);
+        CompletableFuture<Void> done = registry.callEventAsync(first);
+        // The plain handler has already run
+        assertEquals("now 0", log.get(0));
+        for (int i = 1; i < 10; i++)
+            registry.callEventAsync(new BackgroundEvent(i, log));
+        registry.awaitEvents();
+        assertTrue(done.isDone());
+
+        List<String> later = new ArrayList<>();
+        synchronized (log) {
+            for (String entry : log)
+                if (entry.startsWith("later"))
+                    later.add(entry);
+        }
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            expected.add("later " + i);
+        assertEquals(expected, later);
+        assertNotEquals(Thread.currentThread(), first.handledOn);
+
+        // Called the usual way, everything runs straight away
+        BackgroundEvent now = new BackgroundEvent(10, log);
+        registry.callEvent(now);
+        assertEquals(Thread.currentThread(), now.handledOn);
+        System.out.println("Handled " + later + " on " + first.handledOn + ".");
+    }
+
+}
@@ -6,6 +6,7 @@ import edu.neumont.chessmasters.models.pieces.PieceColor;
 import edu.neumont.chessmasters.models.pieces.Queen;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 
 class BoardTest {
@@ -46,4 +47,45 @@ class BoardTest {
         assert (board.pathIsEmpty(new Location("b1"), new Location("d2")));
         System.out.println("Tests passed!");
     }
-}
\ No newline at end of file
+
+    @Test
+    void repetition() {
+        System.out.println("\n --[ Ensuring repeated positions are counted ]-- ");
+        Board board = new Board();
+        String[][] shuffle = {{"g1", "f3"}, {"g8", "f6"}, {"f3", "g1"}, {"f6", "g8"}};
+
+        for (int i = 0; i < 2; i++)
+            for (String[] move : shuffle)
+                board.makeMove(board.encodeMove(Location.of(move[0]), Location.of(move[1]), null));
+        assert (board.isThreefoldRepetition());
+        assertFalse(board.isFivefoldRepetition());
+        System.out.println("Shuffling the knights out and back twice repeats the starting position three times.");
+
+        board.makeMove(board.encodeMove(Location.of("e2"), Location.of("e4"), null));
+        assertEquals(1, board.getRepetitionCount());
+        System.out.println("A pawn move can't be taken back, so the new position hasn't been seen before.");
+
+        board = new Board("4k3/8/8/8/8/8/8/4K2R w K - 0 1");
+        String[][] kings = {{"e1", "f1"}, {"e8", "d8"}, {"f1", "e1"}, {"d8", "e8"}};
+        for (String[] move : kings)
+            board.makeMove(board.encodeMove(Location.of(move[0]), Location.of(move[1]), null));
+        assertEquals(1, board.getRepetitionCount());
+        System.out.println("Once the king has moved it can't castle, so walking it back doesn't repeat the position.");
+    }
+
+    @Test
+    void judgesMovesOnItsOwnBoard() {
+        System.out.println("\n --[ Judging moves against the board the piece is on ]-- ");
+        Board board = new Board("4k3/8/8/8/4r3/8/4N3/4K3 w - - 0 1");
+        GameSession session = new GameSession(board);
+
+        assertFalse(board.movePiece("e2", "c3"));
+        assertEquals("N", board.getSquare("e2").getNotation());
+        System.out.println("The pinned knight can't move.");
+
+        assert (board.movePiece("e1", "d1"));
+        session.awaitEvents();
+        assertEquals("4k3/8/8/8/4r3/8/4N3/3K4 w - - 1 1", board.toFEN());
+        System.out.println("The king can step out of the pin.");
+    }
+}
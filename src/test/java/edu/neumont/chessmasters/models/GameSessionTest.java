@@ -0,0 +1,136 @@
+package edu.neumont.chessmasters.models;
+
+import edu.neumont.chessmasters.Utils;
+import edu.neumont.chessmasters.models.pieces.PieceColor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameSessionTest {
+
+    private static final int THREADS = 8;
+
+    private static final String[] FOOLS_MATE = {"f2 f3", "e7 e5", "g2 g4", "d8 h4"};
+    private static final String[] EN_PASSANT = {"e2 e4", "a7 a6", "e4 e5", "d7 d5", "e5 d6"};
+
+    // Plays moves without waiting, so their reports queue up behind each other, then waits for them all
+    private static void play(GameSession session, String... moves) {
+        Board board = session.getBoard();
+        for (String move : moves) {
+            String[] squares = move.split(" ");
+            board.clearPassant(Utils.Turns.getColor(board));
+            assertTrue(board.movePiece(squares[0], squares[1]), move);
+            board.incrCounter();
+        }
+        session.awaitEvents();
+    }
+
+    // Runs every task at once, as near as can be managed, and returns what they came back with
+    private static <T> List<T> runAll(List<Callable<T>> tasks) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (Callable<T> task : tasks)
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            start.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures)
+                results.add(future.get());
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void gamesKeepToThemselves() throws Exception {
+        System.out.println("\n --[ Playing many games at once ]-- ");
+        Scoreboard scoreboard = new Scoreboard();
+        GameSettings settings = new GameSettings(new String[0]);
+        int games = 400;
+
+        List<Callable<GameSession>> tasks = new ArrayList<>();
+        for (int i = 0; i < games; i++) {
+            boolean mate = i % 2 == 0;
+            tasks.add(() -> {
+                GameSession session = new GameSession(new Board(), settings, scoreboard);
+                play(session, mate ? FOOLS_MATE : EN_PASSANT);
+                return session;
+            });
+        }
+        List<GameSession> sessions = runAll(tasks);
+
+        for (int i = 0; i < games; i++) {
+            GameSession session = sessions.get(i);
+            if (i % 2 == 0) {
+                assertTrue(session.isGameOver());
+                assertTrue(session.getStatus().contains("CHECKMATE!"), session.getStatus());
+                assertEquals("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3", session.getBoard().toFEN());
+            } else {
+                assertFalse(session.isGameOver());
+                assertTrue(session.getStatus().startsWith("The black pawn was captured by the white pawn by performing an En Passant!"),
+                        session.getStatus());
+            }
+        }
+        assertEquals(games / 2.0, scoreboard.getScore(PieceColor.BLACK));
+        assertEquals(0.0, scoreboard.getScore(PieceColor.WHITE));
+        System.out.println("Played " + games + " games on " + THREADS + " threads. " + scoreboard);
+    }
+
+    // Plays random legal moves, noting the status the player would be shown before each one
+    private static List<String> playRandomly(long seed) {
+        GameSession session = new GameSession();
+        Board board = session.getBoard();
+        Random random = new Random(seed);
+        List<String> log = new ArrayList<>();
+        for (int ply = 0; ply < 100; ply++) {
+            PieceColor color = Utils.Turns.getColor(board);
+            board.clearPassant(color);
+            // Worked out while the last move is still being reported on
+            ArrayList<Move> moves = board.generateLegalMoves(color);
+            session.awaitEvents();
+            log.add(session.takeStatus());
+            if (moves.isEmpty() || session.isGameOver())
+                break;
+            Move move = moves.get(random.nextInt(moves.size()));
+            assertTrue(board.movePiece(move), move.toString());
+            board.incrCounter();
+        }
+        session.awaitEvents();
+        log.add(session.takeStatus());
+        log.add(board.toFEN());
+        return log;
+    }
+
+    @Test
+    void randomGamesMatchPlayingAlone() throws Exception {
+        System.out.println("\n --[ Playing random games at once, then one at a time ]-- ");
+        int games = THREADS * 6;
+        List<Callable<List<String>>> tasks = new ArrayList<>();
+        for (int i = 0; i < games; i++) {
+            long seed = i;
+            tasks.add(() -> playRandomly(seed));
+        }
+        List<List<String>> together = runAll(tasks);
+
+        for (int i = 0; i < games; i++)
+            assertEquals(playRandomly(i), together.get(i), "Game " + i);
+        System.out.println("All " + games + " games went the same way on their own.");
+    }
+
+}
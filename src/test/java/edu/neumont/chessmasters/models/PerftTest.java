@@ -0,0 +1,74 @@
+package edu.neumont.chessmasters.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Counts positions from the standard perft test positions (see https://www.chessprogramming.org/Perft_Results)
+ * and compares them against the published totals.
+ */
+class PerftTest {
+
+    private static void check(String fen, long... expected) {
+        Board board = new Board(fen);
+        for (int depth = 1; depth <= expected.length; depth++) {
+            long nodes = board.perft(depth);
+            System.out.println("Depth " + depth + ": " + nodes);
+            assertEquals(expected[depth - 1], nodes, "perft(" + depth + ") of " + fen);
+        }
+        assertEquals(fen, board.toFEN(), "perft should leave the board as it found it");
+    }
+
+    @Test
+    void startPosition() {
+        System.out.println("\n --[ Counting moves from the start position ]-- ");
+        check("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", 20, 400, 8902, 197281);
+    }
+
+    @Test
+    void kiwipete() {
+        System.out.println("\n --[ Counting moves from Kiwipete (castling, en passant and promotions) ]-- ");
+        check("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", 48, 2039, 97862);
+    }
+
+    @Test
+    void position3() {
+        System.out.println("\n --[ Counting moves from position 3 (pins and en passant discovered checks) ]-- ");
+        check("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 14, 191, 2812, 43238, 674624);
+    }
+
+    @Test
+    void position4() {
+        System.out.println("\n --[ Counting moves from position 4 (promotions out of check) ]-- ");
+        check("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", 6, 264, 9467, 422333);
+    }
+
+    @Test
+    void position5() {
+        System.out.println("\n --[ Counting moves from position 5 ]-- ");
+        check("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 44, 1486, 62379);
+    }
+
+    @Test
+    void position6() {
+        System.out.println("\n --[ Counting moves from position 6 ]-- ");
+        check("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", 46, 2079, 89890);
+    }
+
+    @Test
+    void divide() {
+        System.out.println("\n --[ Ensuring divide adds up to perft ]-- ");
+        Board board = new Board("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        Map<Move, Long> divide = board.divide(2);
+        long total = 0;
+        for (long nodes : divide.values())
+            total += nodes;
+        assertEquals(48, divide.size());
+        assertEquals(2039, total);
+        System.out.println("Kiwipete's 48 moves lead to 2039 positions between them.");
+    }
+
+}
@@ -0,0 +1,64 @@
+package edu.neumont.chessmasters.models;
+
+import edu.neumont.chessmasters.models.pieces.PieceColor;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PositionCacheTest {
+
+    @Test
+    void status() {
+        System.out.println("\n --[ Working out game statuses ]-- ");
+        PositionCache cache = new PositionCache();
+        assertEquals(GameStatus.ONGOING, cache.getStatus(new Board(), PieceColor.WHITE));
+        // Fool's mate
+        assertEquals(GameStatus.CHECKMATE, cache.getStatus(new Board("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3"), PieceColor.WHITE));
+        assertEquals(GameStatus.CHECK, cache.getStatus(new Board("4k3/8/8/8/8/8/8/4R1K1 b - - 0 1"), PieceColor.BLACK));
+        assertEquals(GameStatus.STALEMATE, cache.getStatus(new Board("k7/2Q5/1K6/8/8/8/8/8 b - - 0 1"), PieceColor.BLACK));
+        assertEquals(GameStatus.DEAD_POSITION, cache.getStatus(new Board("4k3/8/8/8/8/8/8/2B1K3 w - - 0 1"), PieceColor.WHITE));
+        assertEquals(GameStatus.FIFTY_MOVE_DRAW, cache.getStatus(new Board("4k3/8/8/8/8/8/8/R3K3 w - - 50 80"), PieceColor.WHITE));
+        System.out.println("Each status is recognized.");
+    }
+
+    @Test
+    void remembers() {
+        System.out.println("\n --[ Reusing worked out positions ]-- ");
+        PositionCache cache = new PositionCache(2);
+        Board board = new Board();
+        int[] moves = cache.getLegalMoves(board, PieceColor.WHITE);
+        assertEquals(20, moves.length);
+        assertSame(moves, cache.getLegalMoves(board, PieceColor.WHITE));
+        assertEquals(GameStatus.ONGOING, cache.getStatus(board, PieceColor.WHITE));
+        assertEquals(1, cache.getMisses());
+        assertEquals(2, cache.getHits());
+
+        // The same pieces with the other side to move are a different position
+        assertEquals(20, cache.getLegalMoves(board, PieceColor.BLACK).length);
+        assertEquals(2, cache.getMisses());
+        System.out.println("Repeated lookups are served from the cache.");
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        System.out.println("\n --[ Evicting the least recently used position ]-- ");
+        PositionCache cache = new PositionCache(2);
+        Board first = new Board();
+        Board second = new Board("4k3/8/8/8/8/8/8/R3K3 w - - 0 1");
+        Board third = new Board("4k3/8/8/8/8/8/8/Q3K3 w - - 0 1");
+        cache.getStatus(first, PieceColor.WHITE);
+        cache.getStatus(second, PieceColor.WHITE);
+        // Using the first again makes the second the oldest, so it's the one to go
+        cache.getStatus(first, PieceColor.WHITE);
+        cache.getStatus(third, PieceColor.WHITE);
+        assertEquals(2, cache.size());
+        long misses = cache.getMisses();
+        cache.getStatus(first, PieceColor.WHITE);
+        assertEquals(misses, cache.getMisses());
+        cache.getStatus(second, PieceColor.WHITE);
+        assertEquals(misses + 1, cache.getMisses());
+        System.out.println("The cache stays within its capacity.");
+    }
+
+}
@@ -1,8 +1,5 @@
 package edu.neumont.chessmasters.models.pieces;
 
-import edu.neumont.chessmasters.ChessMasters;
-import edu.neumont.chessmasters.controllers.PlayerMove;
-import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -10,12 +7,6 @@ import static org.junit.jupiter.api.Assertions.fail;
 
 class PieceMovementTests {
 
-    @BeforeAll
-    public static void setup() {
-        PlayerMove controller = PlayerMove.inst();
-        ChessMasters.controller = controller;
-    }
-
     private boolean test(Piece piece, String position) {
         System.out.println("Testing " + piece.getColor().toString() + " " + piece.getClass().getSimpleName() + " moving from " + piece.getLocation().toString() + " to " + position);
         return piece.move(position);